@@ -0,0 +1,332 @@
+package com.example.calculator;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Time, allocation, row and byte counters for one coverage analysis.
+ *
+ * The analysis runs on a single thread. Phases are entered and exited around
+ * each piece of work and time is charged to the innermost phase only. A phase
+ * switch reads {@link System#nanoTime()} and the thread's allocated bytes from
+ * {@link com.sun.management.ThreadMXBean}; where the JVM does not support
+ * allocation counting, allocations are reported as -1.
+ *
+ * When a report is streamed, the work for each class is interleaved with
+ * parsing. Switching phases for every class would cost more than some of the
+ * work itself, so only every {@value #DEFAULT_ROW_SAMPLE_INTERVAL}th row is
+ * timed phase by phase. The phase times of the remaining rows are estimated
+ * from the sampled ones and taken out of the phase the rows arrived in.
+ *
+ * When a JFR recording is running, {@link #finish()} also commits one
+ * {@code com.example.calculator.CoveragePhase} event per phase.
+ */
+public class AnalysisProfile {
+
+    /**
+     * Phases of an analysis, labelled after the work they cover
+     */
+    public enum Phase {
+        /** Loading the cache, hashing the input and parsing the report or execution data */
+        PARSE("read input"),
+        /** Package rollups, the threshold check and the top offender selection */
+        IDENTIFY("check threshold"),
+        /** Evaluating the recommendation rules for classes below the threshold */
+        RECOMMEND("recommend"),
+        /** Report writer calls, the diff against the cache and saving the cache */
+        REPORT("write report");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    static final int DEFAULT_ROW_SAMPLE_INTERVAL = 16;
+    private static final int MAX_DEPTH = 8;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationCounter();
+
+    private final long[] nanos = new long[Phase.values().length];
+    private final long[] allocatedBytes = new long[Phase.values().length];
+    private final long[] sampledRowNanos = new long[Phase.values().length];
+    private final long[] sampledRowAllocatedBytes = new long[Phase.values().length];
+    private final Phase[] stack = new Phase[MAX_DEPTH];
+    private final boolean[] rowPhase = new boolean[MAX_DEPTH];
+    private final int rowSampleInterval;
+    private int depth;
+    private boolean rowSampled;
+    private Phase rowSource;
+    private long sampledRows;
+    private long lastNanos;
+    private long lastAllocatedBytes;
+    private long startNanos;
+    private long endNanos = -1;
+    private long rows;
+    private long bytes;
+
+    /**
+     * Start the profile; time before this call is not counted
+     */
+    public AnalysisProfile() {
+        this(DEFAULT_ROW_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * @param rowSampleInterval Time every n-th row phase by phase; 1 times every row
+     */
+    AnalysisProfile(int rowSampleInterval) {
+        this.rowSampleInterval = rowSampleInterval;
+        startNanos = System.nanoTime();
+        lastNanos = startNanos;
+        lastAllocatedBytes = allocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Start charging time and allocations to a phase, pausing the current one
+     */
+    public void enter(Phase phase) {
+        push(phase, false);
+    }
+
+    /**
+     * Stop charging the innermost phase and resume the one it interrupted
+     */
+    public void exit() {
+        charge();
+        stack[--depth] = null;
+    }
+
+    /**
+     * Start the work for one class read from the report
+     *
+     * Until the next call, {@link #enterRow} and {@link #exitRow} time phases
+     * only if this row is sampled.
+     */
+    public void startRow() {
+        rowSampled = rows++ % rowSampleInterval == 0;
+        if (rowSampled) {
+            sampledRows++;
+        }
+        rowSource = depth > 0 ? stack[depth - 1] : null;
+    }
+
+    /**
+     * Like {@link #enter}, for work done once per row
+     */
+    public void enterRow(Phase phase) {
+        if (rowSampled) {
+            push(phase, true);
+        }
+    }
+
+    /**
+     * Like {@link #exit}, for work done once per row
+     */
+    public void exitRow() {
+        if (rowSampled) {
+            exit();
+        }
+    }
+
+    private void push(Phase phase, boolean row) {
+        charge();
+        stack[depth] = phase;
+        rowPhase[depth++] = row;
+    }
+
+    private void charge() {
+        long now = System.nanoTime();
+        long allocated = allocatedBytes();
+        if (depth > 0) {
+            int phase = stack[depth - 1].ordinal();
+            nanos[phase] += now - lastNanos;
+            allocatedBytes[phase] += allocated - lastAllocatedBytes;
+            if (rowPhase[depth - 1]) {
+                sampledRowNanos[phase] += now - lastNanos;
+                sampledRowAllocatedBytes[phase] += allocated - lastAllocatedBytes;
+            }
+        }
+        lastNanos = now;
+        lastAllocatedBytes = allocated;
+    }
+
+    /**
+     * Count bytes read from the input, the cache file included
+     */
+    public void addBytes(long count) {
+        bytes += count;
+    }
+
+    /**
+     * Stop the clock and commit JFR events if a recording is running
+     */
+    public void finish() {
+        while (depth > 0) {
+            exit();
+        }
+        endNanos = System.nanoTime();
+        commitEvents();
+    }
+
+    private void commitEvents() {
+        try {
+            for (Phase phase : Phase.values()) {
+                PhaseEvent event = new PhaseEvent();
+                if (!event.isEnabled()) {
+                    return;
+                }
+                event.phase = phase.getLabel();
+                event.time = getNanos(phase);
+                event.allocated = getAllocatedBytes(phase);
+                event.rows = rows;
+                event.bytes = bytes;
+                event.commit();
+            }
+        } catch (LinkageError e) {
+            // Runtime image without the jdk.jfr module
+        }
+    }
+
+    /**
+     * @return Time spent in the phase, including the estimate for rows that were not sampled
+     */
+    public long getNanos(Phase phase) {
+        return estimate(phase, nanos, sampledRowNanos);
+    }
+
+    /**
+     * @return Bytes allocated by the analysis thread in the phase, including the
+     *         estimate for rows that were not sampled, or -1 if the JVM cannot count them
+     */
+    public long getAllocatedBytes(Phase phase) {
+        return ALLOCATIONS == null ? -1 : estimate(phase, allocatedBytes, sampledRowAllocatedBytes);
+    }
+
+    /**
+     * Add the estimate for unsampled rows to a row phase, and take the
+     * estimates of all row phases out of the phase the rows arrived in
+     */
+    private long estimate(Phase phase, long[] measured, long[] sampled) {
+        long unsampledRows = rows - sampledRows;
+        if (sampledRows == 0 || unsampledRows == 0) {
+            return measured[phase.ordinal()];
+        }
+        long value = measured[phase.ordinal()] + sampled[phase.ordinal()] * unsampledRows / sampledRows;
+        if (phase == rowSource) {
+            for (Phase rowPhase : Phase.values()) {
+                value -= sampled[rowPhase.ordinal()] * unsampledRows / sampledRows;
+            }
+        }
+        return Math.max(value, 0);
+    }
+
+    /**
+     * @return Time since the profile started, up to {@link #finish()} once it has been called
+     */
+    public long getElapsedNanos() {
+        return (endNanos < 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed <= 0 ? 0.0 : rows * 1e9 / elapsed;
+    }
+
+    public double getMegabytesPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed <= 0 ? 0.0 : bytes / BYTES_PER_MEGABYTE * 1e9 / elapsed;
+    }
+
+    /**
+     * Format the profile as a table with one line per phase
+     *
+     * Time outside every phase, such as opening files, is listed as "other".
+     */
+    public String format() {
+        long elapsed = getElapsedNanos();
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, "%-28s %12s %7s %14s%n", "Phase", "Time (ms)", "Share", "Allocated (MB)"));
+        long phases = 0;
+        for (Phase phase : Phase.values()) {
+            phases += getNanos(phase);
+            long allocated = getAllocatedBytes(phase);
+            appendRow(table, phase.getLabel(), getNanos(phase), elapsed,
+                    allocated < 0 ? "n/a" : String.format(Locale.ROOT, "%.2f", allocated / BYTES_PER_MEGABYTE));
+        }
+        appendRow(table, "other", Math.max(elapsed - phases, 0), elapsed, "");
+        appendRow(table, "total", elapsed, elapsed, "");
+        table.append(String.format(Locale.ROOT, "Rows: %d (%.0f rows/s), bytes: %d (%.2f MB/s)%n",
+                rows, getRowsPerSecond(), bytes, getMegabytesPerSecond()));
+        return table.toString();
+    }
+
+    private static void appendRow(StringBuilder table, String name, long nanos, long elapsed, String allocated) {
+        table.append(String.format(Locale.ROOT, "%-28s %12.3f %6.1f%% %14s%n",
+                name, nanos / 1e6, elapsed <= 0 ? 0.0 : 100.0 * nanos / elapsed, allocated));
+    }
+
+    /**
+     * Totals of one phase of a coverage analysis, committed when the analysis finishes
+     */
+    @Name("com.example.calculator.CoveragePhase")
+    @Label("Coverage Analysis Phase")
+    @Category("Coverage Agent")
+    @Description("Time and allocations of one phase of a coverage analysis")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.calculator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Method-, line- and branch-level coverage for a single class, as read from a
+ * JaCoCo XML report.
+ *
+ * The class-level counters mirror the columns of the JaCoCo CSV report, while
+ * the method list and uncovered line ranges carry the detail that the CSV
+ * report does not contain.
+ */
+public class ClassCoverageDetail {
+
+    /**
+     * A missed/covered counter pair for one JaCoCo counter type
+     */
+    public static class Counter {
+        public static final Counter EMPTY = new Counter(0, 0);
+
+        private final int missed;
+        private final int covered;
+
+        public Counter(int missed, int covered) {
+            this.missed = missed;
+            this.covered = covered;
+        }
+
+        public int getMissed() {
+            return missed;
+        }
+
+        public int getCovered() {
+            return covered;
+        }
+
+        public int getTotal() {
+            return missed + covered;
+        }
+
+        public double getCoverage() {
+            int total = getTotal();
+            return total == 0 ? 0.0 : (double) covered / total;
+        }
+    }
+
+    /**
+     * Coverage for a single method
+     */
+    public static class MethodCoverage {
+        private final String name;
+        private final String descriptor;
+        private final int line;
+        private final Counter instructions;
+        private final Counter branches;
+        private final Counter lines;
+
+        public MethodCoverage(String name, String descriptor, int line,
+                              Counter instructions, Counter branches, Counter lines) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.line = line;
+            this.instructions = instructions;
+            this.branches = branches;
+            this.lines = lines;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * @return First source line of the method, or 0 if the report has no line information
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public Counter getInstructions() {
+            return instructions;
+        }
+
+        public Counter getBranches() {
+            return branches;
+        }
+
+        public Counter getLines() {
+            return lines;
+        }
+
+        public boolean isUntested() {
+            return instructions.getCovered() == 0 && instructions.getMissed() > 0;
+        }
+    }
+
+    /**
+     * An inclusive range of source lines
+     */
+    public static class LineRange {
+        private final int start;
+        private final int end;
+
+        public LineRange(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return start == end ? String.valueOf(start) : start + "-" + end;
+        }
+    }
+
+    private final String packageName;
+    private final String className;
+    private final String sourceFileName;
+    private final Counter instructions;
+    private final Counter branches;
+    private final Counter lines;
+    private final Counter complexity;
+    private final Counter methods;
+    private final List<MethodCoverage> methodCoverage;
+    private final List<LineRange> uncoveredLines;
+    private final List<Integer> partialBranchLines;
+
+    public ClassCoverageDetail(String packageName, String className, String sourceFileName,
+                               Counter instructions, Counter branches, Counter lines,
+                               Counter complexity, Counter methods,
+                               List<MethodCoverage> methodCoverage,
+                               List<LineRange> uncoveredLines,
+                               List<Integer> partialBranchLines) {
+        this.packageName = packageName;
+        this.className = className;
+        this.sourceFileName = sourceFileName;
+        this.instructions = instructions;
+        this.branches = branches;
+        this.lines = lines;
+        this.complexity = complexity;
+        this.methods = methods;
+        this.methodCoverage = Collections.unmodifiableList(methodCoverage);
+        this.uncoveredLines = Collections.unmodifiableList(uncoveredLines);
+        this.partialBranchLines = Collections.unmodifiableList(partialBranchLines);
+    }
+
+    /**
+     * @return Package name in JaCoCo VM notation, e.g. {@code com/example/calculator}
+     */
+    public String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * @return Class name in JaCoCo VM notation, e.g. {@code com/example/calculator/CodeCoverageAgent$CoverageData}
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return Class name as it appears in the CLASS column of the JaCoCo CSV report,
+     *         e.g. {@code CodeCoverageAgent.CoverageData}
+     */
+    public String getSimpleClassName() {
+        return className.substring(className.lastIndexOf('/') + 1).replace('$', '.');
+    }
+
+    /**
+     * @return Fully qualified class name in dotted notation,
+     *         e.g. {@code com.example.calculator.CodeCoverageAgent.CoverageData}
+     */
+    public String getQualifiedClassName() {
+        return className.replace('/', '.').replace('$', '.');
+    }
+
+    public String getSourceFileName() {
+        return sourceFileName;
+    }
+
+    public Counter getInstructions() {
+        return instructions;
+    }
+
+    public Counter getBranches() {
+        return branches;
+    }
+
+    public Counter getLines() {
+        return lines;
+    }
+
+    public Counter getComplexity() {
+        return complexity;
+    }
+
+    public Counter getMethods() {
+        return methods;
+    }
+
+    public List<MethodCoverage> getMethodCoverage() {
+        return methodCoverage;
+    }
+
+    /**
+     * @return Ranges of lines with no covered instructions, in source order
+     */
+    public List<LineRange> getUncoveredLines() {
+        return uncoveredLines;
+    }
+
+    /**
+     * @return Lines that were executed but still have missed branches, in source order
+     */
+    public List<Integer> getPartialBranchLines() {
+        return partialBranchLines;
+    }
+
+    /**
+     * Convert to the class-level counters used by {@link CodeCoverageAgent}
+     */
+    public CodeCoverageAgent.CoverageData toCoverageData() {
+        return new CodeCoverageAgent.CoverageData(packageName.replace('/', '.'), getSimpleClassName(),
+                instructions.getMissed(), instructions.getCovered(),
+                branches.getMissed(), branches.getCovered(),
+                lines.getMissed(), lines.getCovered(),
+                complexity.getMissed(), complexity.getCovered(),
+                methods.getMissed(), methods.getCovered());
+    }
+}
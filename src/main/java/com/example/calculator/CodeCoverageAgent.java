@@ -1,11 +1,13 @@
 package com.example.calculator;
 
-import java.io.BufferedReader;
-import java.io.IOException;
+import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * An agent class that analyzes JaCoCo code coverage reports and provides recommendations
@@ -13,6 +15,13 @@ import java.util.*;
  * 
  * This agent can:
  * - Parse JaCoCo CSV coverage reports
+ * - Parse JaCoCo XML coverage reports for method- and line-level detail
+ * - Read JaCoCo execution data (jacoco.exec) directly, without report generation
+ * - Cache parsed results between runs and report changes against the previous run
+ * - Limit the report to the K worst offenders under a configurable ranking
+ * - Record coverage per build in a history file to follow trends
+ * - Profile time, allocations and throughput of each analysis phase
+ * - Apply configurable recommendation rules per package, class name and counter
  * - Identify classes with low coverage
  * - Suggest specific improvements to reach coverage goals
  * - Generate recommendations for missing test cases
@@ -20,45 +29,116 @@ import java.util.*;
 public class CodeCoverageAgent {
     
     private static final double DEFAULT_COVERAGE_THRESHOLD = 0.80;
+    private static final String DEFAULT_CLASSES_DIRECTORY = "build/classes/java/main";
+    private static final String CACHE_OPTION = "--cache=";
+    private static final String FORMAT_OPTION = "--format=";
+    private static final String OUTPUT_OPTION = "--output=";
+    private static final String TOP_OPTION = "--top=";
+    private static final String RANK_OPTION = "--rank=";
+    private static final String HISTORY_OPTION = "--history=";
+    private static final String BUILD_ID_OPTION = "--build-id=";
+    private static final String PROFILE_OPTION = "--profile";
+    private static final String RULES_OPTION = "--rules=";
     private final double coverageThreshold;
+    private final Path cacheFile;
+    private final OffenderRanking ranking;
+    private final int topOffenders;
+    private final RecommendationRules recommendationRules;
+    private volatile AnalysisProfile lastProfile;
     
     /**
      * Coverage data for a single class
+     * 
+     * Large reports are held in a {@link CoverageTable}; instances for its rows
+     * are created on demand as lightweight views and are not retained.
      */
     public static class CoverageData {
+        private final String packageName;
         private final String className;
         private final int instructionsMissed;
         private final int instructionsCovered;
+        private final int branchesMissed;
+        private final int branchesCovered;
         private final int linesMissed;
         private final int linesCovered;
+        private final int complexityMissed;
+        private final int complexityCovered;
         private final int methodsMissed;
         private final int methodsCovered;
         
         public CoverageData(String className, int instructionsMissed, int instructionsCovered,
                           int linesMissed, int linesCovered, int methodsMissed, int methodsCovered) {
+            this("", className, instructionsMissed, instructionsCovered,
+                 linesMissed, linesCovered, methodsMissed, methodsCovered);
+        }
+        
+        public CoverageData(String packageName, String className, int instructionsMissed, int instructionsCovered,
+                          int linesMissed, int linesCovered, int methodsMissed, int methodsCovered) {
+            this(packageName, className, instructionsMissed, instructionsCovered, 0, 0,
+                 linesMissed, linesCovered, 0, 0, methodsMissed, methodsCovered);
+        }
+        
+        /**
+         * Coverage data with all counters, in the column order of the JaCoCo CSV report
+         */
+        public CoverageData(String packageName, String className,
+                          int instructionsMissed, int instructionsCovered,
+                          int branchesMissed, int branchesCovered,
+                          int linesMissed, int linesCovered,
+                          int complexityMissed, int complexityCovered,
+                          int methodsMissed, int methodsCovered) {
+            this.packageName = packageName;
             this.className = className;
             this.instructionsMissed = instructionsMissed;
             this.instructionsCovered = instructionsCovered;
+            this.branchesMissed = branchesMissed;
+            this.branchesCovered = branchesCovered;
             this.linesMissed = linesMissed;
             this.linesCovered = linesCovered;
+            this.complexityMissed = complexityMissed;
+            this.complexityCovered = complexityCovered;
             this.methodsMissed = methodsMissed;
             this.methodsCovered = methodsCovered;
         }
         
+        /**
+         * @return Package in dotted notation, or an empty string if unknown
+         */
+        public String getPackageName() {
+            return packageName;
+        }
+        
         public String getClassName() {
             return className;
         }
         
+        /**
+         * @return Fully qualified class name in dotted notation
+         */
+        public String getQualifiedName() {
+            return packageName.isEmpty() ? className : packageName + "." + className;
+        }
+        
         public double getInstructionCoverage() {
             int total = instructionsMissed + instructionsCovered;
             return total == 0 ? 0.0 : (double) instructionsCovered / total;
         }
         
+        public double getBranchCoverage() {
+            int total = branchesMissed + branchesCovered;
+            return total == 0 ? 0.0 : (double) branchesCovered / total;
+        }
+        
         public double getLineCoverage() {
             int total = linesMissed + linesCovered;
             return total == 0 ? 0.0 : (double) linesCovered / total;
         }
         
+        public double getComplexityCoverage() {
+            int total = complexityMissed + complexityCovered;
+            return total == 0 ? 0.0 : (double) complexityCovered / total;
+        }
+        
         public double getMethodCoverage() {
             int total = methodsMissed + methodsCovered;
             return total == 0 ? 0.0 : (double) methodsCovered / total;
@@ -68,14 +148,72 @@ public class CodeCoverageAgent {
             return instructionsMissed;
         }
         
+        public int getInstructionsCovered() {
+            return instructionsCovered;
+        }
+        
+        public int getBranchesMissed() {
+            return branchesMissed;
+        }
+        
+        public int getBranchesCovered() {
+            return branchesCovered;
+        }
+        
         public int getLinesMissed() {
             return linesMissed;
         }
         
+        public int getLinesCovered() {
+            return linesCovered;
+        }
+        
+        public int getComplexityMissed() {
+            return complexityMissed;
+        }
+        
+        public int getComplexityCovered() {
+            return complexityCovered;
+        }
+        
         public int getMethodsMissed() {
             return methodsMissed;
         }
         
+        public int getMethodsCovered() {
+            return methodsCovered;
+        }
+        
+        public int getMissed(CoverageTable.Counter counter) {
+            switch (counter) {
+                case INSTRUCTION:
+                    return instructionsMissed;
+                case BRANCH:
+                    return branchesMissed;
+                case LINE:
+                    return linesMissed;
+                case COMPLEXITY:
+                    return complexityMissed;
+                default:
+                    return methodsMissed;
+            }
+        }
+        
+        public int getCovered(CoverageTable.Counter counter) {
+            switch (counter) {
+                case INSTRUCTION:
+                    return instructionsCovered;
+                case BRANCH:
+                    return branchesCovered;
+                case LINE:
+                    return linesCovered;
+                case COMPLEXITY:
+                    return complexityCovered;
+                default:
+                    return methodsCovered;
+            }
+        }
+        
         public boolean isBelowThreshold(double threshold) {
             return getInstructionCoverage() < threshold;
         }
@@ -86,7 +224,54 @@ public class CodeCoverageAgent {
     }
     
     public CodeCoverageAgent(double coverageThreshold) {
+        this(coverageThreshold, null);
+    }
+    
+    /**
+     * @param coverageThreshold Minimum instruction coverage per class
+     * @param cacheFile File to cache parsed coverage in between runs, or null to disable caching
+     */
+    public CodeCoverageAgent(double coverageThreshold, Path cacheFile) {
+        this(coverageThreshold, cacheFile, OffenderRanking.MISSED_INSTRUCTIONS, 0);
+    }
+    
+    /**
+     * @param coverageThreshold Minimum instruction coverage per class
+     * @param cacheFile File to cache parsed coverage in between runs, or null to disable caching
+     * @param ranking Order in which classes below the threshold are reported when limited
+     * @param topOffenders Number of classes below the threshold to report, worst first;
+     *                     0 reports all of them in report order
+     */
+    public CodeCoverageAgent(double coverageThreshold, Path cacheFile, OffenderRanking ranking, int topOffenders) {
+        this(coverageThreshold, cacheFile, ranking, topOffenders, RecommendationRules.defaults());
+    }
+    
+    /**
+     * @param coverageThreshold Minimum instruction coverage per class
+     * @param cacheFile File to cache parsed coverage in between runs, or null to disable caching
+     * @param ranking Order in which classes below the threshold are reported when limited
+     * @param topOffenders Number of classes below the threshold to report, worst first;
+     *                     0 reports all of them in report order
+     * @param recommendationRules Rules for the recommendations by package, class name and coverage
+     */
+    public CodeCoverageAgent(double coverageThreshold, Path cacheFile, OffenderRanking ranking, int topOffenders,
+                             RecommendationRules recommendationRules) {
         this.coverageThreshold = coverageThreshold;
+        this.cacheFile = cacheFile;
+        this.ranking = ranking;
+        this.topOffenders = topOffenders;
+        this.recommendationRules = recommendationRules;
+    }
+    
+    public double getCoverageThreshold() {
+        return coverageThreshold;
+    }
+    
+    /**
+     * @return Profile of the most recent {@link #analyzeAndWrite} call, or null if there was none
+     */
+    public AnalysisProfile getLastProfile() {
+        return lastProfile;
     }
     
     /**
@@ -98,44 +283,256 @@ public class CodeCoverageAgent {
      */
     public List<CoverageData> parseCoverageReport(String reportPath) throws IOException {
         List<CoverageData> coverageList = new ArrayList<>();
-        
+        parseCoverageReport(reportPath, coverageList::add);
+        return coverageList;
+    }
+    
+    /**
+     * Stream JaCoCo CSV coverage report, handing each class to the consumer as
+     * soon as its row has been parsed
+     * 
+     * @param reportPath Path to the JaCoCo CSV report
+     * @param consumer Receives the coverage data for each class
+     * @throws IOException if the report cannot be read
+     */
+    public void parseCoverageReport(String reportPath, Consumer<CoverageData> consumer) throws IOException {
         try (BufferedReader reader = Files.newBufferedReader(Paths.get(reportPath), java.nio.charset.StandardCharsets.UTF_8)) {
+            reader.readLine(); // Skip header
             String line;
-            boolean isFirstLine = true;
-            int lineNumber = 0;
-            
             while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
+                CoverageData data = parseCsvRow(line);
+                if (data != null) {
+                    consumer.accept(data);
                 }
-                
-                String[] fields = line.split(",");
-                if (fields.length < 13) {
-                    // Skip malformed lines
+            }
+        }
+    }
+    
+    /**
+     * Parse JaCoCo CSV coverage report into columnar storage
+     * 
+     * @param reportPath Path to the JaCoCo CSV report
+     * @return Table holding all counters of every class
+     * @throws IOException if the report cannot be read
+     */
+    public CoverageTable parseCoverageTable(String reportPath) throws IOException {
+        CoverageTable table = new CoverageTable();
+        parseCoverageReport(reportPath, table::add);
+        return table;
+    }
+    
+    /**
+     * Parse JaCoCo CSV coverage report, reusing a cache from a previous run
+     * 
+     * If the report is unchanged since the cache was built, the cached data is
+     * returned without parsing. Otherwise only rows that differ from the cached
+     * rows are parsed.
+     * 
+     * @param reportPath Path to the JaCoCo CSV report
+     * @param previous Cache from a previous run; use {@link CoverageCache#empty()} if there is none
+     * @return Cache holding the coverage data for each class of this report
+     * @throws IOException if the report cannot be read
+     */
+    public CoverageCache parseCoverageReport(String reportPath, CoverageCache previous) throws IOException {
+        Path path = Paths.get(reportPath);
+        byte[] reportHash = CoverageCache.hashFile(path);
+        if (previous.matchesReport(reportHash)) {
+            return previous;
+        }
+        
+        CoverageCache current = new CoverageCache(reportHash);
+        try (BufferedReader reader = Files.newBufferedReader(path, java.nio.charset.StandardCharsets.UTF_8)) {
+            reader.readLine(); // Skip header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String key = csvRowKey(line);
+                if (key == null) {
                     continue;
                 }
                 
-                try {
-                    String className = fields[2];
-                    int instructionsMissed = Integer.parseInt(fields[3]);
-                    int instructionsCovered = Integer.parseInt(fields[4]);
-                    int linesMissed = Integer.parseInt(fields[7]);
-                    int linesCovered = Integer.parseInt(fields[8]);
-                    int methodsMissed = Integer.parseInt(fields[11]);
-                    int methodsCovered = Integer.parseInt(fields[12]);
-                    
-                    coverageList.add(new CoverageData(className, instructionsMissed, instructionsCovered,
-                                                     linesMissed, linesCovered, methodsMissed, methodsCovered));
-                } catch (NumberFormatException e) {
-                    // Skip lines with invalid numeric data
+                long rowHash = CoverageCache.rowHash(line);
+                CoverageCache.Entry cached = previous.get(key);
+                if (cached != null && cached.getRowHash() == rowHash) {
+                    current.put(key, rowHash, cached.getData());
                     continue;
                 }
+                
+                CoverageData data = parseCsvRow(line);
+                if (data != null) {
+                    current.put(key, rowHash, data);
+                }
             }
         }
         
-        return coverageList;
+        return current;
+    }
+    
+    /**
+     * Load coverage from a report of any supported format into a cache
+     * 
+     * CSV reports are parsed incrementally against the previous cache; XML
+     * reports and execution data are re-read in full when they change, and
+     * their method and line detail is kept in the cache. Execution data counts
+     * as changed when the execution data file or any file in the class
+     * directories changed.
+     * 
+     * @param reportPath Path to JaCoCo CSV or XML report, or to JaCoCo execution data
+     * @param previous Cache from a previous load; use {@link CoverageCache#empty()} if there is none
+     * @param classDirectories Compiled classes to analyze when reportPath is execution data
+     * @return Cache holding the coverage data for each class, or previous if the report is unchanged
+     * @throws IOException if the report cannot be read
+     */
+    public CoverageCache loadCoverage(String reportPath, CoverageCache previous, List<String> classDirectories)
+            throws IOException {
+        if (isCsvReport(reportPath)) {
+            return parseCoverageReport(reportPath, previous);
+        }
+        
+        byte[] inputHash = isXmlReport(reportPath)
+                ? CoverageCache.hashFile(Paths.get(reportPath))
+                : CoverageCache.hashFiles(Paths.get(reportPath), toPaths(classDirectories));
+        if (previous.matchesReport(inputHash)) {
+            return previous;
+        }
+        
+        CoverageCache current = new CoverageCache(inputHash);
+        Consumer<ClassCoverageDetail> add = detail ->
+                current.put(detail.getQualifiedClassName(), 0L, detail.toCoverageData(), detail);
+        if (isXmlReport(reportPath)) {
+            new JacocoXmlReportParser().parse(Paths.get(reportPath), add);
+        } else {
+            parseExecutionData(reportPath, classDirectories).forEach(add);
+        }
+        return current;
+    }
+    
+    /**
+     * Parse a single CSV row
+     * 
+     * @return Coverage data, or null if the row is malformed
+     */
+    private static CoverageData parseCsvRow(String line) {
+        String[] fields = splitCsvRow(line);
+        if (fields.length < 13) {
+            // Skip malformed lines
+            return null;
+        }
+        
+        try {
+            String packageName = fields[1];
+            String className = fields[2];
+            int instructionsMissed = Integer.parseInt(fields[3]);
+            int instructionsCovered = Integer.parseInt(fields[4]);
+            int branchesMissed = Integer.parseInt(fields[5]);
+            int branchesCovered = Integer.parseInt(fields[6]);
+            int linesMissed = Integer.parseInt(fields[7]);
+            int linesCovered = Integer.parseInt(fields[8]);
+            int complexityMissed = Integer.parseInt(fields[9]);
+            int complexityCovered = Integer.parseInt(fields[10]);
+            int methodsMissed = Integer.parseInt(fields[11]);
+            int methodsCovered = Integer.parseInt(fields[12]);
+            
+            return new CoverageData(packageName, className, instructionsMissed, instructionsCovered,
+                                    branchesMissed, branchesCovered, linesMissed, linesCovered,
+                                    complexityMissed, complexityCovered, methodsMissed, methodsCovered);
+        } catch (NumberFormatException e) {
+            // Skip lines with invalid numeric data
+            return null;
+        }
+    }
+    
+    /**
+     * Split a CSV row into its fields
+     * 
+     * JaCoCo quotes a field that contains a comma or a quote and doubles the
+     * quotes inside it. Rows without quotes take the plain split.
+     */
+    static String[] splitCsvRow(String line) {
+        if (line.indexOf('"') < 0) {
+            return line.split(",");
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+    
+    /**
+     * Fully qualified class name of a CSV row, read from the PACKAGE and CLASS
+     * columns without splitting the rest of the row
+     * 
+     * @return Qualified class name, or null if the row has fewer than three columns
+     */
+    private static String csvRowKey(String line) {
+        if (line.indexOf('"') >= 0) {
+            String[] fields = splitCsvRow(line);
+            if (fields.length < 3) {
+                return null;
+            }
+            return fields[1].isEmpty() ? fields[2] : fields[1] + "." + fields[2];
+        }
+        int packageStart = line.indexOf(',') + 1;
+        int classStart = packageStart == 0 ? -1 : line.indexOf(',', packageStart) + 1;
+        int classEnd = classStart <= 0 ? -1 : line.indexOf(',', classStart);
+        if (classEnd < 0) {
+            return null;
+        }
+        String packageName = line.substring(packageStart, classStart - 1);
+        String className = line.substring(classStart, classEnd);
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+    
+    /**
+     * Parse JaCoCo XML coverage report
+     * 
+     * @param reportPath Path to the JaCoCo XML report
+     * @return Method-, line- and branch-level coverage for each class
+     * @throws IOException if the report cannot be read or is malformed
+     */
+    public List<ClassCoverageDetail> parseXmlCoverageReport(String reportPath) throws IOException {
+        return new JacocoXmlReportParser().parse(Paths.get(reportPath));
+    }
+    
+    /**
+     * Compute coverage directly from JaCoCo execution data
+     * 
+     * @param execPath Path to the JaCoCo execution data file (jacoco.exec)
+     * @param classDirectories Directories holding the compiled classes under test
+     * @return Method-, line- and branch-level coverage for each class
+     * @throws IOException if the execution data or the classes cannot be read
+     */
+    public List<ClassCoverageDetail> parseExecutionData(String execPath, List<String> classDirectories)
+            throws IOException {
+        return new JacocoExecReader(toPaths(classDirectories)).read(Paths.get(execPath));
+    }
+    
+    private static List<Path> toPaths(List<String> directories) {
+        List<Path> paths = new ArrayList<>(directories.size());
+        for (String directory : directories) {
+            paths.add(Paths.get(directory));
+        }
+        return paths;
     }
     
     /**
@@ -156,6 +553,49 @@ public class CodeCoverageAgent {
         return lowCoverageClasses;
     }
     
+    /**
+     * Identify the worst classes below the coverage threshold
+     * 
+     * @param coverageData List of coverage data
+     * @param ranking Order in which classes are ranked
+     * @param limit Maximum number of classes to return
+     * @return Up to limit classes below coverage threshold, worst first
+     */
+    public List<CoverageData> identifyLowCoverageClasses(List<CoverageData> coverageData,
+                                                         OffenderRanking ranking, int limit) {
+        TopKSelector<CoverageData> selector = new TopKSelector<>(limit, ranking.comparator());
+        
+        for (CoverageData data : coverageData) {
+            if (data.isBelowThreshold(coverageThreshold)) {
+                selector.offer(data);
+            }
+        }
+        
+        return selector.result();
+    }
+    
+    /**
+     * Identify classes below the coverage threshold in columnar storage
+     * 
+     * @param table Coverage table
+     * @return Views of the classes below coverage threshold, in row order
+     */
+    public List<CoverageData> identifyLowCoverageClasses(CoverageTable table) {
+        return table.get(table.rowsBelowThreshold(coverageThreshold));
+    }
+    
+    /**
+     * Identify the worst classes below the coverage threshold in columnar storage
+     * 
+     * @param table Coverage table
+     * @param ranking Order in which classes are ranked
+     * @param limit Maximum number of classes to return
+     * @return Views of up to limit classes below coverage threshold, worst first
+     */
+    public List<CoverageData> identifyLowCoverageClasses(CoverageTable table, OffenderRanking ranking, int limit) {
+        return table.get(table.topRows(table.rowsBelowThreshold(coverageThreshold), ranking, limit));
+    }
+    
     /**
      * Generate recommendations for improving coverage
      * 
@@ -163,100 +603,542 @@ public class CodeCoverageAgent {
      * @return List of recommendations
      */
     public List<String> generateRecommendations(List<CoverageData> lowCoverageClasses) {
+        return generateRecommendations(lowCoverageClasses, Collections.emptyMap());
+    }
+    
+    /**
+     * Generate recommendations for improving coverage, pointing to specific
+     * untested methods and uncovered lines where XML detail is available
+     * 
+     * @param lowCoverageClasses Classes with low coverage
+     * @param details Line-level detail for each class, as read from a JaCoCo XML report
+     * @return List of recommendations
+     */
+    public List<String> generateRecommendations(List<CoverageData> lowCoverageClasses,
+                                                Map<CoverageData, ClassCoverageDetail> details) {
         List<String> recommendations = new ArrayList<>();
         
         for (CoverageData data : lowCoverageClasses) {
-            StringBuilder rec = new StringBuilder();
-            rec.append("Class: ").append(data.getClassName())
-               .append(" - Coverage: ").append(String.format("%.2f%%", data.getInstructionCoverage() * 100))
-               .append("\n");
-            
-            if (data.getMethodsMissed() > 0) {
-                rec.append("  - Add tests for ").append(data.getMethodsMissed())
-                   .append(" untested method(s)\n");
-            }
-            
-            if (data.getLinesMissed() > 0) {
-                rec.append("  - Cover ").append(data.getLinesMissed())
-                   .append(" untested line(s)\n");
-            }
-            
-            // Specific recommendations based on class name
-            if (data.getClassName().contains("Response")) {
-                rec.append("  - Add tests for getter and setter methods\n");
-                rec.append("  - Test both constructors\n");
-            } else if (data.getClassName().contains("Application")) {
-                rec.append("  - Main method coverage is optional for application entry points\n");
-            } else if (data.getClassName().contains("Controller")) {
-                rec.append("  - Add tests for all REST endpoints\n");
-                rec.append("  - Test error handling scenarios\n");
-            } else if (data.getClassName().contains("Service")) {
-                rec.append("  - Test all business logic methods\n");
-                rec.append("  - Test edge cases and error conditions\n");
-            }
-            
-            recommendations.add(rec.toString());
+            recommendations.add(formatRecommendation(data, recommendationItems(data, details.get(data))));
         }
         
         return recommendations;
     }
     
+    /**
+     * Generate the individual recommendations for one class
+     * 
+     * @param data Class-level coverage
+     * @param detail Line-level detail for the class, or null if not available
+     * @return Recommendations, one sentence each
+     */
+    public List<String> recommendationItems(CoverageData data, ClassCoverageDetail detail) {
+        List<String> items = new ArrayList<>();
+        
+        if (data.getMethodsMissed() > 0) {
+            items.add("Add tests for " + data.getMethodsMissed() + " untested method(s)");
+        }
+        
+        if (data.getLinesMissed() > 0) {
+            items.add("Cover " + data.getLinesMissed() + " untested line(s)");
+        }
+        
+        if (detail != null) {
+            addDetailRecommendations(items, detail);
+        }
+        
+        recommendationRules.addRecommendations(data, items);
+        
+        return items;
+    }
+    
+    /**
+     * Format the recommendations for one class as a block of the text report
+     */
+    static String formatRecommendation(CoverageData data, List<String> items) {
+        StringBuilder rec = new StringBuilder();
+        rec.append("Class: ").append(data.getClassName())
+           .append(" - Coverage: ").append(String.format("%.2f%%", data.getInstructionCoverage() * 100))
+           .append("\n");
+        for (String item : items) {
+            rec.append("  - ").append(item).append("\n");
+        }
+        return rec.toString();
+    }
+    
+    private void addDetailRecommendations(List<String> items, ClassCoverageDetail detail) {
+        for (ClassCoverageDetail.MethodCoverage method : detail.getMethodCoverage()) {
+            if (method.isUntested()) {
+                String item = "Untested method: " + methodLabel(method);
+                if (method.getLine() > 0) {
+                    item += " (line " + method.getLine() + ")";
+                }
+                items.add(item);
+            }
+        }
+        
+        if (!detail.getUncoveredLines().isEmpty()) {
+            items.add("Uncovered lines: " + join(detail.getUncoveredLines()));
+        }
+        
+        if (!detail.getPartialBranchLines().isEmpty()) {
+            items.add("Missed branches at line(s): " + join(detail.getPartialBranchLines()));
+        }
+    }
+    
+    private static String methodLabel(ClassCoverageDetail.MethodCoverage method) {
+        switch (method.getName()) {
+            case "<init>":
+                return "constructor";
+            case "<clinit>":
+                return "static initializer";
+            default:
+                return method.getName() + "()";
+        }
+    }
+    
+    private static String join(List<?> values) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                joined.append(", ");
+            }
+            joined.append(values.get(i));
+        }
+        return joined.toString();
+    }
+    
     /**
      * Generate a comprehensive coverage report
      * 
-     * @param reportPath Path to JaCoCo CSV report
+     * @param reportPath Path to JaCoCo CSV or XML report, or to JaCoCo execution data
      * @return Coverage analysis report as a string
      */
     public String analyzeAndReport(String reportPath) {
-        StringBuilder report = new StringBuilder();
-        report.append("=== Code Coverage Analysis Report ===\n\n");
+        return analyzeAndReport(reportPath, List.of(DEFAULT_CLASSES_DIRECTORY));
+    }
+    
+    /**
+     * Generate a comprehensive coverage report
+     * 
+     * @param reportPath Path to JaCoCo CSV or XML report, or to JaCoCo execution data
+     * @param classDirectories Compiled classes to analyze when reportPath is execution data
+     * @return Coverage analysis report as a string
+     */
+    public String analyzeAndReport(String reportPath, List<String> classDirectories) {
+        StringWriter report = new StringWriter();
         
         try {
-            List<CoverageData> coverageData = parseCoverageReport(reportPath);
-            
-            // Overall statistics
-            double totalInstructions = 0;
-            double coveredInstructions = 0;
-            
-            for (CoverageData data : coverageData) {
-                totalInstructions += data.instructionsMissed + data.instructionsCovered;
-                coveredInstructions += data.instructionsCovered;
+            analyzeAndWrite(reportPath, classDirectories, new TextReportWriter(report));
+        } catch (IOException e) {
+            report.append("Error reading coverage report: ").append(e.getMessage()).append("\n");
+        }
+        
+        return report.toString();
+    }
+    
+    /**
+     * Analyze coverage and stream the results to a report writer
+     * 
+     * CSV and XML reports are handed to the writer row by row as they are
+     * parsed, so memory use does not grow with the size of the report unless
+     * a cache file is configured. With a cache file, input that has not
+     * changed since the last run is reported from the cache without being
+     * read again. Each phase of the analysis is profiled; the
+     * profile is handed to the writer with the summary and is available from
+     * {@link #getLastProfile()} afterwards.
+     * 
+     * @param reportPath Path to JaCoCo CSV or XML report, or to JaCoCo execution data
+     * @param classDirectories Compiled classes to analyze when reportPath is execution data
+     * @param writer Receives the results
+     * @throws IOException if the report cannot be read or the output cannot be written
+     */
+    public void analyzeAndWrite(String reportPath, List<String> classDirectories, CoverageReportWriter writer)
+            throws IOException {
+        analyzeAndWrite(reportPath, classDirectories, writer, null, null);
+    }
+    
+    /**
+     * Like {@link #analyzeAndWrite(String, List, CoverageReportWriter)}, and
+     * append the coverage of this analysis to a history file
+     * 
+     * The history records exactly the coverage that was reported, so it
+     * never depends on the state of the cache file.
+     * 
+     * @param history History to append to; null to record nothing
+     * @param buildId Identifier of the build, e.g. a commit hash; may be empty
+     * @throws IOException if the report cannot be read, the output cannot be written
+     *                     or the history cannot be read or written
+     */
+    public void analyzeAndWrite(String reportPath, List<String> classDirectories, CoverageReportWriter writer,
+                                CoverageHistory history, String buildId) throws IOException {
+        AnalysisProfile profile = new AnalysisProfile();
+        lastProfile = profile;
+        CoverageTable coverage;
+        try {
+            profile.enter(AnalysisProfile.Phase.REPORT);
+            writer.begin(coverageThreshold);
+            profile.exit();
+            coverage = analyze(reportPath, classDirectories, writer, profile, history != null);
+        } finally {
+            profile.finish();
+        }
+        if (history != null) {
+            history.append(buildId, coverage);
+        }
+    }
+    
+    /**
+     * @param collect Whether classes that are streamed to the writer are also kept in a table
+     * @return Coverage of all classes; null for streamed input unless collect is set
+     */
+    private CoverageTable analyze(String reportPath, List<String> classDirectories, CoverageReportWriter writer,
+                                  AnalysisProfile profile, boolean collect) throws IOException {
+        profile.enter(AnalysisProfile.Phase.PARSE);
+        CoverageCache previous = loadCache(writer, profile);
+        CoverageCache current = null;
+        ResultSink sink = new ResultSink(writer, profile, collect ? new CoverageTable() : null);
+        
+        try {
+            if (cacheFile != null) {
+                current = loadCoverage(reportPath, previous, classDirectories);
+                sink.accept(current);
+            } else if (isXmlReport(reportPath)) {
+                new JacocoXmlReportParser().parse(Paths.get(reportPath), sink::accept);
+            } else if (isExecutionData(reportPath)) {
+                for (ClassCoverageDetail detail : parseExecutionData(reportPath, classDirectories)) {
+                    sink.accept(detail);
+                }
+            } else {
+                parseCoverageReport(reportPath, data -> sink.accept(data, null));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long inputSize = inputSize(reportPath, classDirectories);
+        if (current == null) {
+            profile.addBytes(inputSize);
+        } else {
+            // The input is hashed, and parsed again only if it changed
+            profile.addBytes(current == previous ? inputSize : 2 * inputSize);
+        }
+        profile.exit();
+        
+        sink.writeTopOffenders();
+        profile.enter(AnalysisProfile.Phase.REPORT);
+        if (current != null) {
+            writeChangesAndUpdateCache(writer, previous, current);
+        }
+        writer.end(sink.summary());
+        profile.exit();
+        return current != null ? current.getTable() : sink.getCoverage();
+    }
+    
+    /**
+     * Evaluates each class against the threshold, forwards it to the report
+     * writer and keeps running totals for the summary
+     * 
+     * When the report is limited to the top offenders, classes below the
+     * threshold are held back and written once all classes have been seen:
+     * streamed classes in a bounded heap, cached classes as table rows.
+     * 
+     * Classes arrive from the parser, so the work done for each of them is
+     * profiled as row phases inside the parse phase.
+     */
+    private class ResultSink {
+        private final CoverageReportWriter writer;
+        private final AnalysisProfile profile;
+        private final TopKSelector<Offender> offenders;
+        private final PackageCoverageTree packages = new PackageCoverageTree();
+        private final CoverageTable coverage;
+        private List<Offender> selectedOffenders;
+        private long classesBelowThreshold;
+        private long classesNotShown;
+        
+        /**
+         * @param coverage Table that receives every streamed class; may be null
+         */
+        ResultSink(CoverageReportWriter writer, AnalysisProfile profile, CoverageTable coverage) {
+            this.writer = writer;
+            this.profile = profile;
+            this.coverage = coverage;
+            this.offenders = topOffenders > 0
+                    ? new TopKSelector<>(topOffenders, Comparator.comparing(Offender::getData, ranking.comparator()))
+                    : null;
+        }
+        
+        void accept(ClassCoverageDetail detail) {
+            accept(detail.toCoverageData(), detail);
+        }
+        
+        void accept(CoverageData data, ClassCoverageDetail detail) {
+            profile.startRow();
+            profile.enterRow(AnalysisProfile.Phase.IDENTIFY);
+            packages.add(data);
+            if (coverage != null) {
+                coverage.add(data);
             }
             
-            double overallCoverage = totalInstructions == 0 ? 0 : coveredInstructions / totalInstructions;
-            report.append("Overall Coverage: ").append(String.format("%.2f%%", overallCoverage * 100)).append("\n");
-            report.append("Coverage Threshold: ").append(String.format("%.2f%%", coverageThreshold * 100)).append("\n\n");
-            
-            // Identify low coverage classes
-            List<CoverageData> lowCoverageClasses = identifyLowCoverageClasses(coverageData);
-            
-            if (lowCoverageClasses.isEmpty()) {
-                report.append("✓ All classes meet the coverage threshold!\n");
-            } else {
-                report.append("Classes below coverage threshold:\n\n");
-                List<String> recommendations = generateRecommendations(lowCoverageClasses);
-                for (String rec : recommendations) {
-                    report.append(rec).append("\n");
+            boolean belowThreshold = data.isBelowThreshold(coverageThreshold);
+            if (belowThreshold) {
+                classesBelowThreshold++;
+                if (offenders != null) {
+                    offenders.offer(new Offender(data, detail));
+                    profile.exitRow();
+                    return;
                 }
             }
+            profile.exitRow();
             
-            // Summary
-            report.append("\nSummary:\n");
-            report.append("- Total classes: ").append(coverageData.size()).append("\n");
-            report.append("- Classes below threshold: ").append(lowCoverageClasses.size()).append("\n");
-            report.append("- Classes meeting threshold: ").append(coverageData.size() - lowCoverageClasses.size()).append("\n");
+            write(data, detail, belowThreshold);
+        }
+        
+        /**
+         * Evaluate every class of a cache on the columns of its table;
+         * views are created only for the classes that are written
+         */
+        void accept(CoverageCache coverage) {
+            CoverageTable table = coverage.getTable();
+            boolean writeAll = writer.writesClassesMeetingThreshold();
+            for (int row = 0; row < table.size(); row++) {
+                profile.startRow();
+                profile.enterRow(AnalysisProfile.Phase.IDENTIFY);
+                packages.add(table, row);
+                boolean belowThreshold = table.getCoverage(CoverageTable.Counter.INSTRUCTION, row) < coverageThreshold;
+                if (belowThreshold) {
+                    classesBelowThreshold++;
+                }
+                profile.exitRow();
+                
+                if (belowThreshold ? offenders == null : writeAll) {
+                    write(table.get(row), coverage.getDetail(row), belowThreshold);
+                }
+            }
             
+            if (offenders != null) {
+                int[] below = table.rowsBelowThreshold(coverageThreshold);
+                int[] worst = table.topRows(below, ranking, topOffenders);
+                selectedOffenders = new ArrayList<>(worst.length);
+                for (int row : worst) {
+                    selectedOffenders.add(new Offender(table.get(row), coverage.getDetail(row)));
+                }
+                classesNotShown = below.length - worst.length;
+            }
+        }
+        
+        private void write(CoverageData data, ClassCoverageDetail detail, boolean belowThreshold) {
+            List<String> recommendations = Collections.emptyList();
+            if (belowThreshold) {
+                profile.enterRow(AnalysisProfile.Phase.RECOMMEND);
+                recommendations = recommendationItems(data, detail);
+                profile.exitRow();
+            }
+            profile.enterRow(AnalysisProfile.Phase.REPORT);
+            try {
+                writer.classResult(data, detail, belowThreshold, recommendations);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            profile.exitRow();
+        }
+        
+        void writeTopOffenders() throws IOException {
+            if (offenders == null) {
+                return;
+            }
+            List<Offender> worst = selectedOffenders;
+            if (worst == null) {
+                profile.enter(AnalysisProfile.Phase.IDENTIFY);
+                worst = offenders.result();
+                classesNotShown = offenders.getDropped();
+                profile.exit();
+            }
+            for (Offender offender : worst) {
+                profile.enter(AnalysisProfile.Phase.RECOMMEND);
+                List<String> recommendations = recommendationItems(offender.getData(), offender.getDetail());
+                profile.exit();
+                profile.enter(AnalysisProfile.Phase.REPORT);
+                writer.classResult(offender.getData(), offender.getDetail(), true, recommendations);
+                profile.exit();
+            }
+        }
+        
+        CoverageTable getCoverage() {
+            return coverage;
+        }
+        
+        CoverageReportWriter.Summary summary() {
+            return new CoverageReportWriter.Summary(coverageThreshold, packages,
+                    classesBelowThreshold, classesNotShown, profile);
+        }
+    }
+    
+    /**
+     * A class below the threshold waiting for top-K selection
+     */
+    private static class Offender {
+        private final CoverageData data;
+        private final ClassCoverageDetail detail;
+        
+        Offender(CoverageData data, ClassCoverageDetail detail) {
+            this.data = data;
+            this.detail = detail;
+        }
+        
+        CoverageData getData() {
+            return data;
+        }
+        
+        ClassCoverageDetail getDetail() {
+            return detail;
+        }
+    }
+    
+    /**
+     * Load the cache of the previous run, falling back to an empty cache if
+     * caching is disabled or the cache file is unusable
+     */
+    private CoverageCache loadCache(CoverageReportWriter writer, AnalysisProfile profile) throws IOException {
+        if (cacheFile == null) {
+            return CoverageCache.empty();
+        }
+        try {
+            CoverageCache cache = CoverageCache.load(cacheFile);
+            if (Files.exists(cacheFile)) {
+                profile.addBytes(Files.size(cacheFile));
+            }
+            return cache;
         } catch (IOException e) {
-            report.append("Error reading coverage report: ").append(e.getMessage()).append("\n");
+            writer.warning("ignoring coverage cache: " + e.getMessage());
+            return CoverageCache.empty();
         }
+    }
+    
+    /**
+     * Size of the files a parse of the input reads: the report, or the
+     * execution data together with every file in the class directories
+     */
+    private static long inputSize(String reportPath, List<String> classDirectories) throws IOException {
+        long size = Files.size(Paths.get(reportPath));
+        if (!isExecutionData(reportPath)) {
+            return size;
+        }
+        for (Path directory : toPaths(classDirectories)) {
+            if (Files.isRegularFile(directory)) {
+                size += Files.size(directory);
+            } else if (Files.isDirectory(directory)) {
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(directory)) {
+                    files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    size += Files.size(file);
+                }
+            }
+        }
+        return size;
+    }
+    
+    private void writeChangesAndUpdateCache(CoverageReportWriter writer, CoverageCache previous,
+                                            CoverageCache current) throws IOException {
+        writer.changes(previous.isEmpty() ? null : CoverageDiff.compare(previous, current, coverageThreshold));
         
-        return report.toString();
+        if (current != previous) {
+            try {
+                current.save(cacheFile);
+            } catch (IOException e) {
+                writer.warning("could not update coverage cache: " + e.getMessage());
+            }
+        }
+    }
+    
+    private static boolean isCsvReport(String reportPath) {
+        return !isXmlReport(reportPath) && !isExecutionData(reportPath);
+    }
+    
+    private static boolean isXmlReport(String reportPath) {
+        return reportPath.toLowerCase(Locale.ROOT).endsWith(".xml");
+    }
+    
+    private static boolean isExecutionData(String reportPath) {
+        return reportPath.toLowerCase(Locale.ROOT).endsWith(".exec");
     }
     
     /**
      * Main method to run the coverage agent
+     * 
+     * Usage: {@code [--cache=<file>] [--format=text|json|junit|sarif] [--output=<file>]
+     * [--top=<k>] [--rank=missed-instructions|missed-lines|missed-methods|coverage-ratio]
+     * [--history=<file>] [--build-id=<id>] [--profile] [--rules=<file>] [report] [threshold] [class directories...]}
+     * 
+     * {@code --profile} prints the time, allocations and throughput of each
+     * phase to standard error. {@code --rules} replaces the default
+     * recommendation rules with those of a {@link RecommendationRules} file.
      */
     public static void main(String[] args) {
+        Path cacheFile = null;
+        Path outputFile = null;
+        Path historyFile = null;
+        String buildId = "";
+        ReportFormat format = ReportFormat.TEXT;
+        OffenderRanking ranking = OffenderRanking.MISSED_INSTRUCTIONS;
+        int topOffenders = 0;
+        boolean profile = false;
+        RecommendationRules rules = RecommendationRules.defaults();
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(CACHE_OPTION)) {
+                cacheFile = Paths.get(arg.substring(CACHE_OPTION.length()));
+            } else if (arg.startsWith(HISTORY_OPTION)) {
+                historyFile = Paths.get(arg.substring(HISTORY_OPTION.length()));
+            } else if (arg.startsWith(BUILD_ID_OPTION)) {
+                buildId = arg.substring(BUILD_ID_OPTION.length());
+            } else if (arg.equals(PROFILE_OPTION)) {
+                profile = true;
+            } else if (arg.startsWith(RULES_OPTION)) {
+                try {
+                    rules = RecommendationRules.load(Paths.get(arg.substring(RULES_OPTION.length())));
+                } catch (IOException e) {
+                    System.err.println("Error: Cannot read recommendation rules: " + e.getMessage());
+                    System.exit(1);
+                    return;
+                }
+            } else if (arg.startsWith(OUTPUT_OPTION)) {
+                outputFile = Paths.get(arg.substring(OUTPUT_OPTION.length()));
+            } else if (arg.startsWith(FORMAT_OPTION)) {
+                try {
+                    format = ReportFormat.fromName(arg.substring(FORMAT_OPTION.length()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Error: Unknown format. Must be one of text, json, junit, sarif");
+                    System.exit(1);
+                    return;
+                }
+            } else if (arg.startsWith(TOP_OPTION)) {
+                try {
+                    topOffenders = Integer.parseInt(arg.substring(TOP_OPTION.length()));
+                    if (topOffenders < 0) {
+                        throw new NumberFormatException();
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Error: Invalid top value. Must be a non-negative integer");
+                    System.exit(1);
+                    return;
+                }
+            } else if (arg.startsWith(RANK_OPTION)) {
+                try {
+                    ranking = OffenderRanking.fromName(arg.substring(RANK_OPTION.length()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Error: Unknown ranking. Must be one of missed-instructions, "
+                            + "missed-lines, missed-methods, coverage-ratio");
+                    System.exit(1);
+                    return;
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+        args = positional.toArray(new String[0]);
+        
         String reportPath = args.length > 0 ? args[0] : "build/reports/jacoco/test/jacocoTestReport.csv";
         double threshold;
         
@@ -273,8 +1155,37 @@ public class CodeCoverageAgent {
             return;
         }
         
-        CodeCoverageAgent agent = new CodeCoverageAgent(threshold);
-        String report = agent.analyzeAndReport(reportPath);
-        System.out.println(report);
+        List<String> classDirectories = args.length > 2
+                ? Arrays.asList(args).subList(2, args.length)
+                : List.of(DEFAULT_CLASSES_DIRECTORY);
+        
+        CodeCoverageAgent agent = new CodeCoverageAgent(threshold, cacheFile, ranking, topOffenders, rules);
+        try {
+            Writer out = outputFile != null
+                    ? Files.newBufferedWriter(outputFile, java.nio.charset.StandardCharsets.UTF_8)
+                    : new BufferedWriter(new OutputStreamWriter(System.out));
+            try {
+                agent.analyzeAndWrite(reportPath, classDirectories, format.newWriter(out),
+                        historyFile != null ? new CoverageHistory(historyFile) : null, buildId);
+                if (profile) {
+                    System.err.print(agent.getLastProfile().format());
+                }
+            } catch (IOException e) {
+                if (format != ReportFormat.TEXT) {
+                    throw e;
+                }
+                // The text report carries the error, as analyzeAndReport does
+                out.write("Error reading coverage report: " + e.getMessage() + "\n");
+            } finally {
+                if (outputFile != null) {
+                    out.close();
+                } else {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
     }
 }
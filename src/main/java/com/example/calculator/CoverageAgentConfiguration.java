@@ -0,0 +1,41 @@
+package com.example.calculator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Runs the coverage agent as a service inside the application when
+ * {@code coverage.agent.report} is set: the report is indexed at startup and
+ * re-indexed whenever it changes on disk.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "coverage.agent", name = "report")
+public class CoverageAgentConfiguration {
+
+    @Bean
+    public CoverageIndex coverageIndex(@Value("${coverage.agent.report}") String report,
+                                       @Value("${coverage.agent.threshold:0.80}") double threshold,
+                                       @Value("${coverage.agent.class-directories:build/classes/java/main}") List<String> classDirectories,
+                                       @Value("${coverage.agent.rules:}") String rules) throws IOException {
+        RecommendationRules recommendationRules = rules.isEmpty()
+                ? RecommendationRules.defaults()
+                : RecommendationRules.load(Paths.get(rules));
+        CodeCoverageAgent agent = new CodeCoverageAgent(threshold, null, OffenderRanking.MISSED_INSTRUCTIONS, 0,
+                recommendationRules);
+        CoverageIndex index = new CoverageIndex(agent, Paths.get(report), classDirectories);
+        // The report may not exist until the first test run; the watcher picks it up then
+        index.reloadQuietly();
+        return index;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CoverageWatcher coverageWatcher(CoverageIndex coverageIndex) throws IOException {
+        return new CoverageWatcher(coverageIndex);
+    }
+}
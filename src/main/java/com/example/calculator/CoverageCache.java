@@ -0,0 +1,461 @@
+package com.example.calculator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, compact on-disk cache of parsed coverage data.
+ *
+ * The cache remembers the hash of the input it was built from, so an
+ * unchanged report or unchanged execution data is not read again at all, and a
+ * hash of every CSV report row, so a changed CSV report only re-parses the
+ * rows that differ. The cached state of the previous run also serves as the
+ * baseline for {@link CoverageDiff}.
+ *
+ * Entries are keyed by the fully qualified class name in dotted notation
+ * (e.g. {@code com.example.calculator.CodeCoverageAgent.CoverageData}), which
+ * is the same for CSV, XML and execution data input.
+ *
+ * Entries are stored in a {@link CoverageTable}, so a large cache holds a few
+ * primitive columns rather than one object per class. Classes read from an
+ * XML report or from execution data also keep their method and line detail,
+ * encoded as a byte array and decoded only when asked for, so an unchanged
+ * input is reported exactly as if it had been read again.
+ *
+ * File layout: magic, version, report hash, entry count, then per entry the
+ * key, the length of its package prefix, the row hash, the ten counters as
+ * variable-length integers and the length of the encoded detail followed by
+ * the detail itself. A file of any other version is rejected, so the agent
+ * reads its input again as if there were no cache.
+ */
+public class CoverageCache {
+
+    private static final int MAGIC = 0x4A434341; // "JCCA"
+    private static final int VERSION = 3;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * A cached class with the hash of the report row it was parsed from
+     */
+    public static class Entry {
+        private final long rowHash;
+        private final CodeCoverageAgent.CoverageData data;
+
+        public Entry(long rowHash, CodeCoverageAgent.CoverageData data) {
+            this.rowHash = rowHash;
+            this.data = data;
+        }
+
+        public long getRowHash() {
+            return rowHash;
+        }
+
+        public CodeCoverageAgent.CoverageData getData() {
+            return data;
+        }
+    }
+
+    private final byte[] reportHash;
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final CoverageTable table = new CoverageTable();
+    private long[] rowHashes = new long[64];
+    private byte[][] details = new byte[64][];
+
+    public CoverageCache(byte[] reportHash) {
+        this.reportHash = reportHash.clone();
+    }
+
+    /**
+     * @return An empty cache that matches no report
+     */
+    public static CoverageCache empty() {
+        return new CoverageCache(new byte[0]);
+    }
+
+    /**
+     * Load a cache file
+     *
+     * @param cacheFile Path to the cache file
+     * @return The cached state, or an empty cache if the file does not exist
+     * @throws IOException if the file cannot be read or is not a valid cache file
+     */
+    public static CoverageCache load(Path cacheFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a coverage cache file: " + cacheFile);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported coverage cache version " + version + ": " + cacheFile);
+            }
+            byte[] hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+            CoverageCache cache = new CoverageCache(hash);
+            int count = readVarInt(in);
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                int prefixLength = readVarInt(in);
+                long rowHash = in.readLong();
+                if (prefixLength > key.length()) {
+                    throw new IOException("Corrupt coverage cache file: " + cacheFile);
+                }
+                String packageName = prefixLength > 0 ? key.substring(0, prefixLength - 1) : "";
+                String className = key.substring(prefixLength);
+                CodeCoverageAgent.CoverageData data = new CodeCoverageAgent.CoverageData(packageName, className,
+                        readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in),
+                        readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in));
+                byte[] detail = null;
+                int detailLength = readVarInt(in);
+                if (detailLength > 0) {
+                    detail = new byte[detailLength];
+                    in.readFully(detail);
+                }
+                cache.putEncoded(key, rowHash, data, detail);
+            }
+            return cache;
+        } catch (NoSuchFileException e) {
+            return empty();
+        } catch (EOFException e) {
+            throw new IOException("Truncated coverage cache file: " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Write the cache atomically, replacing any existing file
+     *
+     * @param cacheFile Path to the cache file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path cacheFile) throws IOException {
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeByte(reportHash.length);
+                out.write(reportHash);
+                writeVarInt(out, keys.size());
+                for (int row = 0; row < keys.size(); row++) {
+                    String key = keys.get(row);
+                    String className = table.getClassName(row);
+                    out.writeUTF(key);
+                    writeVarInt(out, key.endsWith(className) ? key.length() - className.length() : 0);
+                    out.writeLong(rowHashes[row]);
+                    for (CoverageTable.Counter counter : CoverageTable.Counter.values()) {
+                        writeVarInt(out, table.getMissed(counter, row));
+                        writeVarInt(out, table.getCovered(counter, row));
+                    }
+                    byte[] detail = details[row];
+                    writeVarInt(out, detail == null ? 0 : detail.length);
+                    if (detail != null) {
+                        out.write(detail);
+                    }
+                }
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * @return Whether this cache was built from a report with the given hash
+     */
+    public boolean matchesReport(byte[] hash) {
+        return reportHash.length > 0 && MessageDigest.isEqual(reportHash, hash);
+    }
+
+    public Entry get(String key) {
+        Integer row = rows.get(key);
+        return row == null ? null : new Entry(rowHashes[row], table.get(row));
+    }
+
+    public void put(String key, long rowHash, CodeCoverageAgent.CoverageData data) {
+        putEncoded(key, rowHash, data, null);
+    }
+
+    /**
+     * Store a class together with its method and line detail
+     */
+    public void put(String key, long rowHash, CodeCoverageAgent.CoverageData data, ClassCoverageDetail detail) {
+        putEncoded(key, rowHash, data, detail == null ? null : encodeDetail(detail));
+    }
+
+    private void putEncoded(String key, long rowHash, CodeCoverageAgent.CoverageData data, byte[] detail) {
+        Integer row = rows.get(key);
+        if (row != null) {
+            table.set(row, data);
+        } else {
+            row = table.add(data);
+            rows.put(key, row);
+            keys.add(key);
+            if (row == rowHashes.length) {
+                rowHashes = Arrays.copyOf(rowHashes, row * 2);
+                details = Arrays.copyOf(details, row * 2);
+            }
+        }
+        rowHashes[row] = rowHash;
+        details[row] = detail;
+    }
+
+    /**
+     * @return Row of the class in {@link #getTable()}, or -1 if it is not cached
+     */
+    public int getRow(String key) {
+        Integer row = rows.get(key);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * @return Fully qualified class name of a row of {@link #getTable()}
+     */
+    public String getKey(int row) {
+        return keys.get(row);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    /**
+     * @param row Row of {@link #getTable()}
+     * @return Method and line detail of the class, or null if it was read from a CSV report
+     */
+    public ClassCoverageDetail getDetail(int row) {
+        byte[] detail = details[row];
+        if (detail == null) {
+            return null;
+        }
+        try {
+            return decodeDetail(detail, table, row);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt class detail in coverage cache", e);
+        }
+    }
+
+    /**
+     * @return Cached coverage in columnar form, one row per class in report order
+     */
+    public CoverageTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return Cached coverage data, in report order, as one view per class
+     */
+    public List<CodeCoverageAgent.CoverageData> getCoverageData() {
+        List<CodeCoverageAgent.CoverageData> result = new ArrayList<>(keys.size());
+        for (int row = 0; row < keys.size(); row++) {
+            result.add(table.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * @return Cached coverage data by fully qualified class name, in report order
+     */
+    public Map<String, CodeCoverageAgent.CoverageData> getCoverageByClass() {
+        Map<String, CodeCoverageAgent.CoverageData> result = new LinkedHashMap<>();
+        for (int row = 0; row < keys.size(); row++) {
+            result.put(keys.get(row), table.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * Hash the contents of a report file
+     *
+     * @param reportPath Path to the report
+     * @return SHA-256 digest of the file contents
+     * @throws IOException if the report cannot be read
+     */
+    public static byte[] hashFile(Path reportPath) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, reportPath, new byte[64 * 1024]);
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, Path file, byte[] buffer) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Hash execution data together with the classes it is analyzed against
+     *
+     * Execution data only determines coverage together with the compiled
+     * classes, so a rebuild without a new test run must not match.
+     *
+     * @param execFile Path to the execution data
+     * @param classDirectories Directories or jar files holding the compiled classes; missing ones are skipped
+     * @return SHA-256 digest of the execution data and of the path and contents of every class file
+     * @throws IOException if a file cannot be read
+     */
+    public static byte[] hashFiles(Path execFile, List<Path> classDirectories) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        update(digest, execFile, buffer);
+        for (Path directory : classDirectories) {
+            if (Files.isRegularFile(directory)) {
+                update(digest, directory, buffer);
+            } else if (Files.isDirectory(directory)) {
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(directory)) {
+                    files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    digest.update(directory.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                    update(digest, file, buffer);
+                }
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a report row, used to detect changed rows
+     */
+    public static long rowHash(String row) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < row.length(); i++) {
+            hash ^= row.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Encode what a {@link ClassCoverageDetail} holds beyond the class counters
+     * of its row: VM class name, source file, methods, uncovered line ranges
+     * and lines with missed branches. Line numbers are stored as deltas.
+     */
+    private static byte[] encodeDetail(ClassCoverageDetail detail) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(detail.getClassName());
+            out.writeBoolean(detail.getSourceFileName() != null);
+            if (detail.getSourceFileName() != null) {
+                out.writeUTF(detail.getSourceFileName());
+            }
+            writeVarInt(out, detail.getMethodCoverage().size());
+            for (ClassCoverageDetail.MethodCoverage method : detail.getMethodCoverage()) {
+                out.writeUTF(method.getName());
+                out.writeUTF(method.getDescriptor());
+                writeVarInt(out, method.getLine());
+                writeCounter(out, method.getInstructions());
+                writeCounter(out, method.getBranches());
+                writeCounter(out, method.getLines());
+            }
+            writeVarInt(out, detail.getUncoveredLines().size());
+            int previousLine = 0;
+            for (ClassCoverageDetail.LineRange range : detail.getUncoveredLines()) {
+                writeVarInt(out, range.getStart() - previousLine);
+                writeVarInt(out, range.getEnd() - range.getStart());
+                previousLine = range.getEnd();
+            }
+            writeVarInt(out, detail.getPartialBranchLines().size());
+            previousLine = 0;
+            for (int line : detail.getPartialBranchLines()) {
+                writeVarInt(out, line - previousLine);
+                previousLine = line;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ClassCoverageDetail decodeDetail(byte[] detail, CoverageTable table, int row) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(detail));
+        String className = in.readUTF();
+        String sourceFileName = in.readBoolean() ? in.readUTF() : null;
+        int methodCount = readVarInt(in);
+        List<ClassCoverageDetail.MethodCoverage> methods = new ArrayList<>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+            methods.add(new ClassCoverageDetail.MethodCoverage(in.readUTF(), in.readUTF(), readVarInt(in),
+                    readCounter(in), readCounter(in), readCounter(in)));
+        }
+        int rangeCount = readVarInt(in);
+        List<ClassCoverageDetail.LineRange> uncoveredLines = new ArrayList<>(rangeCount);
+        int previousLine = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            int start = previousLine + readVarInt(in);
+            previousLine = start + readVarInt(in);
+            uncoveredLines.add(new ClassCoverageDetail.LineRange(start, previousLine));
+        }
+        int partialCount = readVarInt(in);
+        List<Integer> partialBranchLines = new ArrayList<>(partialCount);
+        previousLine = 0;
+        for (int i = 0; i < partialCount; i++) {
+            previousLine += readVarInt(in);
+            partialBranchLines.add(previousLine);
+        }
+        int packageEnd = className.lastIndexOf('/');
+        return new ClassCoverageDetail(packageEnd < 0 ? "" : className.substring(0, packageEnd), className,
+                sourceFileName, counter(table, CoverageTable.Counter.INSTRUCTION, row),
+                counter(table, CoverageTable.Counter.BRANCH, row), counter(table, CoverageTable.Counter.LINE, row),
+                counter(table, CoverageTable.Counter.COMPLEXITY, row), counter(table, CoverageTable.Counter.METHOD, row),
+                methods, uncoveredLines, partialBranchLines);
+    }
+
+    private static ClassCoverageDetail.Counter counter(CoverageTable table, CoverageTable.Counter counter, int row) {
+        return new ClassCoverageDetail.Counter(table.getMissed(counter, row), table.getCovered(counter, row));
+    }
+
+    private static void writeCounter(DataOutput out, ClassCoverageDetail.Counter counter) throws IOException {
+        writeVarInt(out, counter.getMissed());
+        writeVarInt(out, counter.getCovered());
+    }
+
+    private static ClassCoverageDetail.Counter readCounter(DataInput in) throws IOException {
+        return new ClassCoverageDetail.Counter(readVarInt(in), readVarInt(in));
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer in coverage cache");
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.calculator;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/coverage")
+@ConditionalOnProperty(prefix = "coverage.agent", name = "report")
+public class CoverageController {
+
+    private final CoverageIndex coverageIndex;
+
+    public CoverageController(CoverageIndex coverageIndex) {
+        this.coverageIndex = coverageIndex;
+    }
+
+    @GetMapping
+    public ResponseEntity<CoverageIndex.Overview> overview() {
+        return ResponseEntity.ok(coverageIndex.getOverview());
+    }
+
+    @GetMapping("/classes/{name}")
+    public ResponseEntity<CodeCoverageAgent.CoverageData> coverageOf(@PathVariable String name) {
+        return coverageIndex.findClass(name)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/packages/{name}")
+    public ResponseEntity<CoverageIndex.PackageSummary> coverageOfPackage(@PathVariable String name) {
+        return coverageIndex.findPackage(name)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/below-threshold")
+    public ResponseEntity<List<CodeCoverageAgent.CoverageData>> belowThreshold() {
+        return ResponseEntity.ok(coverageIndex.getClassesBelowThreshold());
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.calculator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference in coverage between a stored baseline and the current run.
+ *
+ * Classes are matched by fully qualified class name. Classes that are new
+ * since the baseline only contribute to the overall delta. The comparison
+ * runs over the columns of the two {@link CoverageCache} tables; views are
+ * created only for the classes that are reported as dropped, improved or
+ * newly below the threshold.
+ */
+public class CoverageDiff {
+
+    private final List<CodeCoverageAgent.CoverageData> dropped = new ArrayList<>();
+    private final List<CodeCoverageAgent.CoverageData> improved = new ArrayList<>();
+    private final List<CodeCoverageAgent.CoverageData> newlyBelowThreshold = new ArrayList<>();
+    private final List<String> added = new ArrayList<>();
+    private final List<String> changed = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+    private final double baselineCoverage;
+    private final double currentCoverage;
+
+    private CoverageDiff(double baselineCoverage, double currentCoverage) {
+        this.baselineCoverage = baselineCoverage;
+        this.currentCoverage = currentCoverage;
+    }
+
+    /**
+     * Compare the current coverage against a baseline
+     *
+     * @param baseline Baseline coverage by fully qualified class name
+     * @param current Current coverage by fully qualified class name
+     * @param threshold Coverage threshold used to flag classes that newly fall below it
+     * @return The difference between baseline and current coverage
+     */
+    public static CoverageDiff compare(Map<String, CodeCoverageAgent.CoverageData> baseline,
+                                       Map<String, CodeCoverageAgent.CoverageData> current,
+                                       double threshold) {
+        return compare(toCache(baseline), toCache(current), threshold);
+    }
+
+    /**
+     * Compare the current coverage against a baseline
+     *
+     * @param baseline Baseline coverage, e.g. the cache of the previous run
+     * @param current Current coverage
+     * @param threshold Coverage threshold used to flag classes that newly fall below it
+     * @return The difference between baseline and current coverage
+     */
+    public static CoverageDiff compare(CoverageCache baseline, CoverageCache current, double threshold) {
+        CoverageTable before = baseline.getTable();
+        CoverageTable now = current.getTable();
+        CoverageDiff diff = new CoverageDiff(before.getOverallCoverage(CoverageTable.Counter.INSTRUCTION),
+                now.getOverallCoverage(CoverageTable.Counter.INSTRUCTION));
+        for (int row = 0; row < current.size(); row++) {
+            String key = current.getKey(row);
+            int baselineRow = baseline.getRow(key);
+            if (baselineRow < 0) {
+                diff.added.add(key);
+                continue;
+            }
+            if (!sameCounters(before, baselineRow, now, row)) {
+                diff.changed.add(key);
+            }
+            double coverageBefore = before.getCoverage(CoverageTable.Counter.INSTRUCTION, baselineRow);
+            double coverageNow = now.getCoverage(CoverageTable.Counter.INSTRUCTION, row);
+            int change = Double.compare(coverageNow, coverageBefore);
+            if (change < 0) {
+                diff.dropped.add(now.get(row));
+            } else if (change > 0) {
+                diff.improved.add(now.get(row));
+            }
+            if (coverageNow < threshold && coverageBefore >= threshold) {
+                diff.newlyBelowThreshold.add(now.get(row));
+            }
+        }
+        for (int row = 0; row < baseline.size(); row++) {
+            String key = baseline.getKey(row);
+            if (current.getRow(key) < 0) {
+                diff.removed.add(key);
+            }
+        }
+        return diff;
+    }
+
+    private static boolean sameCounters(CoverageTable before, int baselineRow, CoverageTable now, int row) {
+        for (CoverageTable.Counter counter : CoverageTable.Counter.values()) {
+            if (before.getMissed(counter, baselineRow) != now.getMissed(counter, row)
+                    || before.getCovered(counter, baselineRow) != now.getCovered(counter, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CoverageCache toCache(Map<String, CodeCoverageAgent.CoverageData> coverage) {
+        CoverageCache cache = CoverageCache.empty();
+        for (Map.Entry<String, CodeCoverageAgent.CoverageData> entry : coverage.entrySet()) {
+            cache.put(entry.getKey(), 0L, entry.getValue());
+        }
+        return cache;
+    }
+
+    /**
+     * @return Classes that are not in the baseline, by fully qualified name
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return Classes present in both runs whose counters differ, by fully qualified name
+     */
+    public List<String> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return Classes of the baseline that are gone, by fully qualified name
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return Classes whose instruction coverage decreased
+     */
+    public List<CodeCoverageAgent.CoverageData> getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return Classes whose instruction coverage increased
+     */
+    public List<CodeCoverageAgent.CoverageData> getImproved() {
+        return improved;
+    }
+
+    /**
+     * @return Classes that met the threshold in the baseline but no longer do
+     */
+    public List<CodeCoverageAgent.CoverageData> getNewlyBelowThreshold() {
+        return newlyBelowThreshold;
+    }
+
+    public double getBaselineCoverage() {
+        return baselineCoverage;
+    }
+
+    public double getCurrentCoverage() {
+        return currentCoverage;
+    }
+
+    public double getOverallDelta() {
+        return currentCoverage - baselineCoverage;
+    }
+
+    /**
+     * Append a human-readable summary of the difference to a report, e.g. the
+     * writer of a text report
+     */
+    public void appendTo(Appendable report) throws IOException {
+        report.append("Overall delta: ").append(String.format("%+.2f%%", getOverallDelta() * 100))
+              .append(" (").append(String.format("%.2f%%", baselineCoverage * 100))
+              .append(" -> ").append(String.format("%.2f%%", currentCoverage * 100)).append(")\n");
+        appendClasses(report, "Newly below threshold", newlyBelowThreshold);
+        appendClasses(report, "Dropped", dropped);
+        appendClasses(report, "Improved", improved);
+    }
+
+    private static void appendClasses(Appendable report, String label, List<CodeCoverageAgent.CoverageData> classes)
+            throws IOException {
+        report.append("- ").append(label).append(": ").append(String.valueOf(classes.size())).append("\n");
+        for (CodeCoverageAgent.CoverageData data : classes) {
+            report.append("  - ").append(data.getClassName()).append(" ")
+                  .append(String.format("%.2f%%", data.getInstructionCoverage() * 100)).append("\n");
+        }
+    }
+}
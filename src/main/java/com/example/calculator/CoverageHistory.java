@@ -0,0 +1,727 @@
+package com.example.calculator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Local, append-only store of instruction coverage per class across builds.
+ *
+ * Every build is one length-prefixed record holding the build's totals and,
+ * per class, only the change of its counters since the previous build, as
+ * variable-length integers. Class names are stored once, in the record of the
+ * build that first saw them. Every {@value #KEYFRAME_INTERVAL}th record holds
+ * absolute counters for all classes, so the state at any build is rebuilt
+ * from at most that many records. Reads go through memory-mapped windows of
+ * the file.
+ *
+ * File layout: magic and version, then records of the form
+ * {@code length, flags, timestamp, build id, class count, missed and covered
+ * instruction totals, new class names, removed class ids, changed classes}.
+ * Class ids in the removed and changed lists are ascending and gap-encoded;
+ * counter changes are zigzag-encoded. A record cut short by a crash is
+ * ignored and overwritten by the next append.
+ *
+ * Each instance keeps an index of the file in memory: class ids by name, the
+ * counters of the latest build and, per class, the file positions of its
+ * changes. The index is built on first use and afterwards only reads records
+ * appended since, so an append never replays earlier records and a class
+ * series reads only the changes of that class.
+ */
+public class CoverageHistory {
+
+    private static final int MAGIC = 0x4A434853; // "JCHS"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_LENGTH = 5;
+    private static final int KEYFRAME = 1;
+    static final int KEYFRAME_INTERVAL = 100;
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int MAX_VARLONG_LENGTH = 10;
+
+    /**
+     * Totals of one recorded build
+     */
+    public static class Build {
+        private final int index;
+        private final long timestamp;
+        private final String buildId;
+        private final int totalClasses;
+        private final long instructionsMissed;
+        private final long instructionsCovered;
+
+        public Build(int index, long timestamp, String buildId, int totalClasses,
+                     long instructionsMissed, long instructionsCovered) {
+            this.index = index;
+            this.timestamp = timestamp;
+            this.buildId = buildId;
+            this.totalClasses = totalClasses;
+            this.instructionsMissed = instructionsMissed;
+            this.instructionsCovered = instructionsCovered;
+        }
+
+        /**
+         * @return Position of the build in the history, starting at 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return Time the build was recorded, in milliseconds since the epoch
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getBuildId() {
+            return buildId;
+        }
+
+        public int getTotalClasses() {
+            return totalClasses;
+        }
+
+        public long getInstructionsMissed() {
+            return instructionsMissed;
+        }
+
+        public long getInstructionsCovered() {
+            return instructionsCovered;
+        }
+
+        public double getCoverage() {
+            long total = instructionsMissed + instructionsCovered;
+            return total == 0 ? 0.0 : (double) instructionsCovered / total;
+        }
+    }
+
+    /**
+     * Change of one class's instruction coverage between two builds
+     */
+    public static class ClassTrend {
+        private final String className;
+        private final double fromCoverage;
+        private final double toCoverage;
+
+        public ClassTrend(String className, double fromCoverage, double toCoverage) {
+            this.className = className;
+            this.fromCoverage = fromCoverage;
+            this.toCoverage = toCoverage;
+        }
+
+        /**
+         * @return Fully qualified class name in dotted notation
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        public double getFromCoverage() {
+            return fromCoverage;
+        }
+
+        public double getToCoverage() {
+            return toCoverage;
+        }
+
+        public double getDelta() {
+            return toCoverage - fromCoverage;
+        }
+    }
+
+    /**
+     * Counters of every class as of one build
+     */
+    private static class State {
+        int[] missed = new int[0];
+        int[] covered = new int[0];
+        BitSet present = new BitSet();
+
+        void ensureCapacity(int classes) {
+            if (classes > missed.length) {
+                int capacity = Math.max(classes, missed.length * 2);
+                missed = Arrays.copyOf(missed, capacity);
+                covered = Arrays.copyOf(covered, capacity);
+            }
+        }
+
+        double coverage(int id) {
+            int total = missed[id] + covered[id];
+            return total == 0 ? 0.0 : (double) covered[id] / total;
+        }
+    }
+
+    /**
+     * Builds in which one class changed, with the file position of its counter
+     * changes; position -1 means the class was absent from that build on
+     */
+    private static class Postings {
+        int[] builds = new int[4];
+        long[] positions = new long[4];
+        int size;
+
+        void add(int build, long position) {
+            if (size == builds.length) {
+                builds = Arrays.copyOf(builds, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            builds[size] = build;
+            positions[size++] = position;
+        }
+    }
+
+    /**
+     * Build totals, record positions, class ids and per-class changes of the
+     * records read so far, and the counters as of the latest of them
+     */
+    private static class Index {
+        final List<Build> builds = new ArrayList<>();
+        final List<Long> offsets = new ArrayList<>();
+        final List<Boolean> keyframes = new ArrayList<>();
+        final List<String> classNames = new ArrayList<>();
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<Postings> postings = new ArrayList<>();
+        final State latest = new State();
+        long validLength = FILE_HEADER_LENGTH;
+    }
+
+    private final Path file;
+    private Index loadedIndex;
+
+    /**
+     * @param file History file; created on the first append
+     */
+    public CoverageHistory(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Record the coverage of one build
+     *
+     * @param buildId Identifier of the build, e.g. a commit hash; may be empty
+     * @param timestamp Time of the build in milliseconds since the epoch
+     * @param coverageData Coverage of every class, as returned by
+     *                     {@link CodeCoverageAgent#parseCoverageReport(String)}
+     * @throws IOException if the history cannot be read or written
+     */
+    public void append(String buildId, long timestamp,
+                       Collection<CodeCoverageAgent.CoverageData> coverageData) throws IOException {
+        append(buildId, timestamp, CoverageTable.of(coverageData));
+    }
+
+    /**
+     * Record the coverage of one build from the rows of a table
+     *
+     * @param buildId Identifier of the build, e.g. a commit hash; may be empty
+     * @param timestamp Time of the build in milliseconds since the epoch
+     * @param coverage Coverage of every class
+     * @throws IOException if the history cannot be read or written
+     */
+    public synchronized void append(String buildId, long timestamp, CoverageTable coverage) throws IOException {
+        Index index = readIndex();
+        State previous = index.latest;
+        boolean keyframe = index.builds.size() % KEYFRAME_INTERVAL == 0;
+
+        // Current counters by class id; the last row wins if a class appears twice
+        Map<String, Integer> newIds = new HashMap<>();
+        List<String> newNames = new ArrayList<>();
+        TreeMap<Integer, int[]> current = new TreeMap<>();
+        long totalMissed = 0;
+        long totalCovered = 0;
+        for (int row = 0; row < coverage.size(); row++) {
+            String name = coverage.getQualifiedName(row);
+            Integer id = index.ids.get(name);
+            if (id == null) {
+                id = newIds.get(name);
+            }
+            if (id == null) {
+                id = index.classNames.size() + newNames.size();
+                newIds.put(name, id);
+                newNames.add(name);
+            }
+            current.put(id, new int[]{coverage.getMissed(CoverageTable.Counter.INSTRUCTION, row),
+                    coverage.getCovered(CoverageTable.Counter.INSTRUCTION, row)});
+        }
+        for (int[] counters : current.values()) {
+            totalMissed += counters[0];
+            totalCovered += counters[1];
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(keyframe ? KEYFRAME : 0);
+        out.writeLong(timestamp);
+        writeString(out, buildId);
+        writeVarLong(out, current.size());
+        writeVarLong(out, totalMissed);
+        writeVarLong(out, totalCovered);
+        writeVarLong(out, newNames.size());
+        for (String name : newNames) {
+            writeString(out, name);
+        }
+
+        List<Integer> removed = new ArrayList<>();
+        if (!keyframe) {
+            for (int id = previous.present.nextSetBit(0); id >= 0; id = previous.present.nextSetBit(id + 1)) {
+                if (!current.containsKey(id)) {
+                    removed.add(id);
+                }
+            }
+        }
+        writeVarLong(out, removed.size());
+        int lastId = 0;
+        for (int id : removed) {
+            writeVarLong(out, id - lastId);
+            lastId = id;
+        }
+
+        List<Map.Entry<Integer, int[]>> changed = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> entry : current.entrySet()) {
+            int id = entry.getKey();
+            boolean known = !keyframe && id < previous.missed.length && previous.present.get(id);
+            if (!known || previous.missed[id] != entry.getValue()[0] || previous.covered[id] != entry.getValue()[1]) {
+                changed.add(entry);
+            }
+        }
+        writeVarLong(out, changed.size());
+        lastId = 0;
+        for (Map.Entry<Integer, int[]> entry : changed) {
+            int id = entry.getKey();
+            boolean known = !keyframe && id < previous.missed.length && previous.present.get(id);
+            writeVarLong(out, id - lastId);
+            writeVarLong(out, zigzag((long) entry.getValue()[0] - (known ? previous.missed[id] : 0)));
+            writeVarLong(out, zigzag((long) entry.getValue()[1] - (known ? previous.covered[id] : 0)));
+            lastId = id;
+        }
+        out.flush();
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Drop a record left incomplete by an interrupted append
+            channel.truncate(index.validLength);
+            ByteBuffer record = ByteBuffer.allocate(FILE_HEADER_LENGTH + 4 + bytes.size());
+            if (channel.size() == 0) {
+                record.putInt(MAGIC).put((byte) VERSION);
+            }
+            record.putInt(bytes.size()).put(bytes.toByteArray()).flip();
+            channel.position(channel.size());
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            channel.force(false);
+        }
+        readIndex();
+    }
+
+    /**
+     * Record the coverage of one build, stamped with the current time
+     */
+    public void append(String buildId, Collection<CodeCoverageAgent.CoverageData> coverageData) throws IOException {
+        append(buildId, Instant.now().toEpochMilli(), coverageData);
+    }
+
+    /**
+     * Record the coverage of one build from the rows of a table, stamped with the current time
+     */
+    public void append(String buildId, CoverageTable coverage) throws IOException {
+        append(buildId, Instant.now().toEpochMilli(), coverage);
+    }
+
+    /**
+     * @return Overall instruction coverage of every recorded build, oldest first
+     * @throws IOException if the history cannot be read
+     */
+    public synchronized List<Build> getBuilds() throws IOException {
+        return List.copyOf(readIndex().builds);
+    }
+
+    /**
+     * Find classes whose instruction coverage dropped over the last builds
+     *
+     * Only classes present in both builds are compared.
+     *
+     * @param builds Number of builds to look back; 1 compares the latest build with the one before
+     * @return Classes with lower coverage in the latest build, largest drop first
+     * @throws IOException if the history cannot be read
+     */
+    public synchronized List<ClassTrend> getDroppedClasses(int builds) throws IOException {
+        if (builds <= 0) {
+            throw new IllegalArgumentException("builds must be positive: " + builds);
+        }
+        Index index = readIndex();
+        int last = index.builds.size() - 1;
+        int first = Math.max(last - builds, 0);
+        if (last <= first) {
+            return List.of();
+        }
+        State from = replay(index, first);
+        State to = index.latest;
+
+        List<ClassTrend> dropped = new ArrayList<>();
+        for (int id = to.present.nextSetBit(0); id >= 0; id = to.present.nextSetBit(id + 1)) {
+            if (from.present.get(id) && to.coverage(id) < from.coverage(id)) {
+                dropped.add(new ClassTrend(index.classNames.get(id), from.coverage(id), to.coverage(id)));
+            }
+        }
+        dropped.sort(Comparator.comparingDouble(ClassTrend::getDelta).thenComparing(ClassTrend::getClassName));
+        return dropped;
+    }
+
+    /**
+     * Instruction coverage of one class in every recorded build
+     *
+     * @param className Fully qualified class name in dotted notation
+     * @return Coverage per build, oldest first; {@link Double#NaN} for builds without the class
+     * @throws IOException if the history cannot be read
+     */
+    public synchronized double[] getClassSeries(String className) throws IOException {
+        Index index = readIndex();
+        double[] series = new double[index.builds.size()];
+        Arrays.fill(series, Double.NaN);
+        Integer id = index.ids.get(className);
+        if (id == null) {
+            return series;
+        }
+        Postings postings = index.postings.get(id);
+        long missed = 0;
+        long covered = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Window window = new Window(channel);
+            for (int i = 0; i < postings.size; i++) {
+                int build = postings.builds[i];
+                int next = i + 1 < postings.size ? postings.builds[i + 1] : series.length;
+                long position = postings.positions[i];
+                if (position < 0) {
+                    continue;
+                }
+                // Changes are relative to the last counters, except in a keyframe or after an absence
+                boolean known = i > 0 && postings.positions[i - 1] >= 0 && !index.keyframes.get(build);
+                ByteBuffer changes = window.map(position, Math.min(2 * MAX_VARLONG_LENGTH, index.validLength - position));
+                missed = (known ? missed : 0) + unzigzag(readVarLong(changes));
+                covered = (known ? covered : 0) + unzigzag(readVarLong(changes));
+                long total = missed + covered;
+                Arrays.fill(series, build, next, total == 0 ? 0.0 : (double) covered / total);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt coverage history file: " + file, e);
+        }
+        return series;
+    }
+
+    /**
+     * Bring the in-memory index up to date with the file, reading only the
+     * records appended since the last call
+     */
+    private synchronized Index readIndex() throws IOException {
+        long size = Files.exists(file) ? Files.size(file) : 0;
+        if (size == 0) {
+            loadedIndex = null;
+            return new Index();
+        }
+        if (loadedIndex == null || size < loadedIndex.validLength) {
+            // First use, or the file was replaced by a shorter one
+            loadedIndex = null;
+        } else if (size == loadedIndex.validLength) {
+            return loadedIndex;
+        }
+        Index current = loadedIndex != null ? loadedIndex : new Index();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            Window window = new Window(channel);
+            if (loadedIndex == null) {
+                ByteBuffer header = window.map(0, Math.min(size, FILE_HEADER_LENGTH));
+                if (size < FILE_HEADER_LENGTH || header.getInt() != MAGIC || header.get() != VERSION) {
+                    throw new IOException("Not a coverage history file: " + file);
+                }
+            }
+            long offset = current.validLength;
+            while (offset + 4 <= size) {
+                int length = window.map(offset, 4).getInt();
+                if (length < 0 || offset + 4 + length > size) {
+                    break;
+                }
+                addRecord(current, window.map(offset + 4, length), offset);
+                offset += 4 + length;
+                current.validLength = offset;
+            }
+        } catch (BufferUnderflowException e) {
+            loadedIndex = null;
+            throw new IOException("Corrupt coverage history file: " + file, e);
+        } catch (IOException e) {
+            loadedIndex = null;
+            throw e;
+        }
+        loadedIndex = current;
+        return current;
+    }
+
+    /**
+     * Add one record to the index: its build totals, new class names and the
+     * position of every class change in it
+     */
+    private static void addRecord(Index index, ByteBuffer record, long offset) throws IOException {
+        int build = index.builds.size();
+        boolean keyframe = (record.get() & KEYFRAME) != 0;
+        long timestamp = record.getLong();
+        String buildId = readString(record);
+        int totalClasses = (int) readVarLong(record);
+        long missed = readVarLong(record);
+        long covered = readVarLong(record);
+        long newNames = readVarLong(record);
+        for (long i = 0; i < newNames; i++) {
+            String name = readString(record);
+            index.ids.put(name, index.classNames.size());
+            index.classNames.add(name);
+            index.postings.add(new Postings());
+        }
+
+        State state = index.latest;
+        BitSet before = keyframe ? (BitSet) state.present.clone() : null;
+        if (keyframe) {
+            state.present.clear();
+        }
+        long removed = readVarLong(record);
+        int id = 0;
+        for (long i = 0; i < removed; i++) {
+            id += (int) readVarLong(record);
+            checkId(index, id);
+            if (state.present.get(id)) {
+                index.postings.get(id).add(build, -1);
+            }
+            state.present.clear(id);
+        }
+        long changed = readVarLong(record);
+        id = 0;
+        for (long i = 0; i < changed; i++) {
+            id += (int) readVarLong(record);
+            checkId(index, id);
+            index.postings.get(id).add(build, offset + 4 + record.position());
+            state.ensureCapacity(id + 1);
+            boolean known = state.present.get(id);
+            state.missed[id] = (int) ((known ? state.missed[id] : 0) + unzigzag(readVarLong(record)));
+            state.covered[id] = (int) ((known ? state.covered[id] : 0) + unzigzag(readVarLong(record)));
+            state.present.set(id);
+        }
+        if (keyframe) {
+            // Classes a keyframe leaves out are gone
+            before.andNot(state.present);
+            for (id = before.nextSetBit(0); id >= 0; id = before.nextSetBit(id + 1)) {
+                index.postings.get(id).add(build, -1);
+            }
+        }
+
+        index.builds.add(new Build(build, timestamp, buildId, totalClasses, missed, covered));
+        index.offsets.add(offset);
+        index.keyframes.add(keyframe);
+    }
+
+    private static void checkId(Index index, int id) throws IOException {
+        if (id < 0 || id >= index.classNames.size()) {
+            throw new IOException("Corrupt coverage history record");
+        }
+    }
+
+    /**
+     * Rebuild the counters of every class as of one build, starting from the
+     * closest keyframe at or before it
+     */
+    private State replay(Index index, int build) throws IOException {
+        int start = build;
+        while (start > 0 && !index.keyframes.get(start)) {
+            start--;
+        }
+        State state = new State();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Window window = new Window(channel);
+            for (int i = start; i <= build; i++) {
+                apply(window.record(index.offsets.get(i)), state, index.keyframes.get(i));
+            }
+        }
+        return state;
+    }
+
+    private static void apply(ByteBuffer record, State state, boolean keyframe) throws IOException {
+        try {
+            applyChanges(record, state, keyframe);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt coverage history record", e);
+        }
+    }
+
+    private static void applyChanges(ByteBuffer record, State state, boolean keyframe) throws IOException {
+        record.get();
+        record.getLong();
+        readString(record);
+        readVarLong(record);
+        readVarLong(record);
+        readVarLong(record);
+        long newNames = readVarLong(record);
+        for (long i = 0; i < newNames; i++) {
+            readString(record);
+        }
+        if (keyframe) {
+            state.present.clear();
+        }
+
+        long removed = readVarLong(record);
+        int id = 0;
+        for (long i = 0; i < removed; i++) {
+            id += (int) readVarLong(record);
+            state.present.clear(id);
+        }
+
+        long changed = readVarLong(record);
+        id = 0;
+        for (long i = 0; i < changed; i++) {
+            id += (int) readVarLong(record);
+            state.ensureCapacity(id + 1);
+            boolean known = state.present.get(id);
+            state.missed[id] = (int) ((known ? state.missed[id] : 0) + unzigzag(readVarLong(record)));
+            state.covered[id] = (int) ((known ? state.covered[id] : 0) + unzigzag(readVarLong(record)));
+            state.present.set(id);
+        }
+    }
+
+    /**
+     * Read-only memory-mapped view of the history file, remapped as reads move
+     * past the current window
+     */
+    private static class Window {
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private long start;
+
+        Window(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer map(long offset, long length) throws IOException {
+            if (buffer == null || offset < start || offset + length > start + buffer.capacity()) {
+                long size = channel.size();
+                long mapped = Math.min(Math.max(WINDOW_SIZE, length), size - offset);
+                if (mapped > Integer.MAX_VALUE) {
+                    throw new IOException("Coverage history record too large: " + length + " bytes");
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, mapped);
+                start = offset;
+            }
+            ByteBuffer view = buffer.duplicate();
+            view.position((int) (offset - start));
+            view.limit((int) (offset - start + length));
+            return view.slice();
+        }
+
+        ByteBuffer record(long offset) throws IOException {
+            int length = map(offset, 4).getInt();
+            return map(offset + 4, length);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Corrupt coverage history record");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IOException("Corrupt coverage history record");
+            }
+            int b = in.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer in coverage history");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Print the overall coverage series or the classes whose coverage dropped
+     *
+     * Usage: {@code <history-file> [series | dropped <builds>]}
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: CoverageHistory <history-file> [series | dropped <builds>]");
+            System.exit(1);
+            return;
+        }
+        CoverageHistory history = new CoverageHistory(Path.of(args[0]));
+        String query = args.length > 1 ? args[1] : "series";
+        try {
+            if (query.equals("series")) {
+                for (Build build : history.getBuilds()) {
+                    System.out.println(String.format("#%d %s %s %.2f%% (%d classes)", build.getIndex(),
+                            Instant.ofEpochMilli(build.getTimestamp()), build.getBuildId(),
+                            build.getCoverage() * 100, build.getTotalClasses()));
+                }
+            } else if (query.equals("dropped")) {
+                int builds;
+                try {
+                    builds = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+                    if (builds <= 0) {
+                        throw new NumberFormatException();
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("Error: Invalid number of builds. Must be a positive integer");
+                    System.exit(1);
+                    return;
+                }
+                for (ClassTrend trend : history.getDroppedClasses(builds)) {
+                    System.out.println(String.format("%s %.2f%% -> %.2f%% (%+.2f%%)", trend.getClassName(),
+                            trend.getFromCoverage() * 100, trend.getToCoverage() * 100, trend.getDelta() * 100));
+                }
+            } else {
+                System.err.println("Error: Unknown query. Must be one of series, dropped");
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.calculator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Keeps the parsed coverage of one report warm in memory and answers coverage
+ * queries from precomputed lookups.
+ *
+ * Every reload builds a new immutable snapshot and publishes it atomically,
+ * so queries never block and never see a half-updated index. Reloads reuse a
+ * {@link CoverageCache}, so only changed rows of a CSV report are parsed again,
+ * and the package rollup of the new snapshot is a copy of the previous one
+ * with only the added, changed and removed classes applied.
+ */
+public class CoverageIndex {
+
+    /**
+     * Overall figures for the indexed report
+     */
+    public static class Overview {
+        private final double coverageThreshold;
+        private final double overallCoverage;
+        private final int totalClasses;
+        private final int classesBelowThreshold;
+        private final String updatedAt;
+        private final String lastError;
+
+        public Overview(double coverageThreshold, double overallCoverage, int totalClasses,
+                        int classesBelowThreshold, String updatedAt, String lastError) {
+            this.coverageThreshold = coverageThreshold;
+            this.overallCoverage = overallCoverage;
+            this.totalClasses = totalClasses;
+            this.classesBelowThreshold = classesBelowThreshold;
+            this.updatedAt = updatedAt;
+            this.lastError = lastError;
+        }
+
+        public double getCoverageThreshold() {
+            return coverageThreshold;
+        }
+
+        public double getOverallCoverage() {
+            return overallCoverage;
+        }
+
+        public int getTotalClasses() {
+            return totalClasses;
+        }
+
+        public int getClassesBelowThreshold() {
+            return classesBelowThreshold;
+        }
+
+        /**
+         * @return ISO-8601 time of the last successful load, or null if nothing was loaded yet
+         */
+        public String getUpdatedAt() {
+            return updatedAt;
+        }
+
+        /**
+         * @return Error of the last failed load, or null if the last load succeeded
+         */
+        public String getLastError() {
+            return lastError;
+        }
+    }
+
+    /**
+     * Rolled-up coverage of a package and its sub-packages
+     */
+    public static class PackageSummary {
+        private final String name;
+        private final double instructionCoverage;
+        private final double branchCoverage;
+        private final double lineCoverage;
+        private final double complexityCoverage;
+        private final double methodCoverage;
+        private final int totalClasses;
+        private final boolean belowThreshold;
+
+        public PackageSummary(PackageCoverageTree.Node node, double coverageThreshold) {
+            this.name = node.getName();
+            this.instructionCoverage = node.getInstructionCoverage();
+            this.branchCoverage = node.getBranchCoverage();
+            this.lineCoverage = node.getLineCoverage();
+            this.complexityCoverage = node.getComplexityCoverage();
+            this.methodCoverage = node.getMethodCoverage();
+            this.totalClasses = node.getClassCount();
+            this.belowThreshold = node.isBelowThreshold(coverageThreshold);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getInstructionCoverage() {
+            return instructionCoverage;
+        }
+
+        public double getBranchCoverage() {
+            return branchCoverage;
+        }
+
+        public double getLineCoverage() {
+            return lineCoverage;
+        }
+
+        public double getComplexityCoverage() {
+            return complexityCoverage;
+        }
+
+        public double getMethodCoverage() {
+            return methodCoverage;
+        }
+
+        public int getTotalClasses() {
+            return totalClasses;
+        }
+
+        public boolean isBelowThreshold() {
+            return belowThreshold;
+        }
+    }
+
+    private static class Snapshot {
+        final CoverageCache coverage;
+        final int[] belowThreshold;
+        final PackageCoverageTree packages;
+        final Overview overview;
+
+        Snapshot(CoverageCache coverage, int[] belowThreshold, PackageCoverageTree packages, Overview overview) {
+            this.coverage = coverage;
+            this.belowThreshold = belowThreshold;
+            this.packages = packages;
+            this.overview = overview;
+        }
+    }
+
+    private final CodeCoverageAgent agent;
+    private final Path reportPath;
+    private final List<String> classDirectories;
+    private volatile Snapshot snapshot;
+    private CoverageCache cache = CoverageCache.empty();
+
+    /**
+     * @param agent Agent used to parse the report and evaluate the threshold
+     * @param reportPath Report to index
+     * @param classDirectories Compiled classes to analyze when reportPath is execution data
+     */
+    public CoverageIndex(CodeCoverageAgent agent, Path reportPath, List<String> classDirectories) {
+        this.agent = agent;
+        this.reportPath = reportPath;
+        this.classDirectories = List.copyOf(classDirectories);
+        this.snapshot = new Snapshot(cache, new int[0], new PackageCoverageTree(),
+                new Overview(agent.getCoverageThreshold(), 0.0, 0, 0, null, null));
+    }
+
+    public Path getReportPath() {
+        return reportPath;
+    }
+
+    /**
+     * Re-read the report and publish a new snapshot if it changed
+     *
+     * @return Whether the indexed coverage changed
+     * @throws IOException if the report cannot be read
+     */
+    public synchronized boolean reload() throws IOException {
+        CoverageCache next = agent.loadCoverage(reportPath.toString(), cache, classDirectories);
+        if (next == cache) {
+            return false;
+        }
+        snapshot = buildSnapshot(cache, next);
+        cache = next;
+        return true;
+    }
+
+    /**
+     * Like {@link #reload()}, but records a failure in the overview instead of throwing
+     *
+     * @return Whether the indexed coverage changed
+     */
+    public synchronized boolean reloadQuietly() {
+        try {
+            return reload();
+        } catch (IOException | RuntimeException e) {
+            Overview previous = snapshot.overview;
+            snapshot = new Snapshot(snapshot.coverage, snapshot.belowThreshold, snapshot.packages,
+                    new Overview(previous.getCoverageThreshold(), previous.getOverallCoverage(),
+                            previous.getTotalClasses(), previous.getClassesBelowThreshold(),
+                            previous.getUpdatedAt(), String.valueOf(e.getMessage())));
+            return false;
+        }
+    }
+
+    private Snapshot buildSnapshot(CoverageCache previous, CoverageCache coverage) {
+        CoverageTable table = coverage.getTable();
+        int[] belowThreshold = table.rowsBelowThreshold(agent.getCoverageThreshold());
+        PackageCoverageTree packages = previous.isEmpty()
+                ? PackageCoverageTree.of(table)
+                : updatePackages(snapshot.packages, previous, coverage);
+        Overview overview = new Overview(agent.getCoverageThreshold(),
+                packages.getRoot().getInstructionCoverage(), table.size(),
+                belowThreshold.length, Instant.now().toString(), null);
+        return new Snapshot(coverage, belowThreshold, packages, overview);
+    }
+
+    /**
+     * Apply the classes that differ between two reports to a copy of the
+     * package tree of the previous one
+     */
+    private PackageCoverageTree updatePackages(PackageCoverageTree tree, CoverageCache previous,
+                                               CoverageCache coverage) {
+        CoverageDiff diff = CoverageDiff.compare(previous, coverage, agent.getCoverageThreshold());
+        CoverageTable before = previous.getTable();
+        CoverageTable now = coverage.getTable();
+        PackageCoverageTree packages = tree.copy();
+        for (String key : diff.getRemoved()) {
+            packages.remove(before.get(previous.getRow(key)));
+        }
+        for (String key : diff.getChanged()) {
+            packages.update(before.get(previous.getRow(key)), now.get(coverage.getRow(key)));
+        }
+        for (String key : diff.getAdded()) {
+            packages.add(now, coverage.getRow(key));
+        }
+        return packages;
+    }
+
+    public Overview getOverview() {
+        return snapshot.overview;
+    }
+
+    /**
+     * Look up a class by fully qualified name (e.g. {@code com.example.calculator.CalculatorService})
+     * or, failing that, by simple name as it appears in the CSV report
+     */
+    public Optional<CodeCoverageAgent.CoverageData> findClass(String name) {
+        CoverageCache coverage = snapshot.coverage;
+        int row = coverage.getRow(name);
+        if (row < 0) {
+            row = coverage.getTable().findRow(name);
+        }
+        return row < 0 ? Optional.empty() : Optional.of(coverage.getTable().get(row));
+    }
+
+    /**
+     * Look up the rolled-up coverage of a package (e.g. {@code com.example}) and its sub-packages
+     */
+    public Optional<PackageSummary> findPackage(String name) {
+        PackageCoverageTree.Node node = snapshot.packages.getPackage(name);
+        return Optional.ofNullable(node).map(n -> new PackageSummary(n, agent.getCoverageThreshold()));
+    }
+
+    /**
+     * @return Classes below the coverage threshold, in report order
+     */
+    public List<CodeCoverageAgent.CoverageData> getClassesBelowThreshold() {
+        Snapshot current = snapshot;
+        return current.coverage.getTable().get(current.belowThreshold);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.calculator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the results of a coverage analysis as they are produced and writes
+ * them out in a specific format.
+ *
+ * Calls arrive in this order: {@link #begin}, then any number of
+ * {@link #warning} and {@link #classResult} calls, optionally {@link #changes},
+ * and finally {@link #end}. Implementations write as they go and do not retain
+ * per-class state, so memory use does not grow with the size of the report.
+ */
+public interface CoverageReportWriter {
+
+    /**
+     * Totals for the whole report, known once every class has been seen
+     */
+    class Summary {
+        private final double coverageThreshold;
+        private final double overallCoverage;
+        private final long totalClasses;
+        private final long classesBelowThreshold;
+        private final long classesNotShown;
+        private final PackageCoverageTree packages;
+        private final AnalysisProfile profile;
+
+        public Summary(double coverageThreshold, double overallCoverage,
+                       long totalClasses, long classesBelowThreshold) {
+            this(coverageThreshold, overallCoverage, totalClasses, classesBelowThreshold, 0);
+        }
+
+        public Summary(double coverageThreshold, double overallCoverage,
+                       long totalClasses, long classesBelowThreshold, long classesNotShown) {
+            this(coverageThreshold, overallCoverage, totalClasses, classesBelowThreshold, classesNotShown, null, null);
+        }
+
+        /**
+         * Totals taken from the root of a package tree
+         *
+         * @param classesNotShown Classes below the threshold that were left out of the report
+         *                        because only the top offenders are listed
+         */
+        public Summary(double coverageThreshold, PackageCoverageTree packages,
+                       long classesBelowThreshold, long classesNotShown) {
+            this(coverageThreshold, packages, classesBelowThreshold, classesNotShown, null);
+        }
+
+        /**
+         * Totals taken from the root of a package tree, with the profile of the analysis
+         *
+         * @param profile Counters of the running analysis, or null if it is not profiled
+         */
+        public Summary(double coverageThreshold, PackageCoverageTree packages,
+                       long classesBelowThreshold, long classesNotShown, AnalysisProfile profile) {
+            this(coverageThreshold, packages.getRoot().getInstructionCoverage(), packages.getRoot().getClassCount(),
+                 classesBelowThreshold, classesNotShown, packages, profile);
+        }
+
+        private Summary(double coverageThreshold, double overallCoverage, long totalClasses,
+                        long classesBelowThreshold, long classesNotShown, PackageCoverageTree packages,
+                        AnalysisProfile profile) {
+            this.coverageThreshold = coverageThreshold;
+            this.overallCoverage = overallCoverage;
+            this.totalClasses = totalClasses;
+            this.classesBelowThreshold = classesBelowThreshold;
+            this.classesNotShown = classesNotShown;
+            this.packages = packages;
+            this.profile = profile;
+        }
+
+        public double getCoverageThreshold() {
+            return coverageThreshold;
+        }
+
+        public double getOverallCoverage() {
+            return overallCoverage;
+        }
+
+        public long getTotalClasses() {
+            return totalClasses;
+        }
+
+        public long getClassesBelowThreshold() {
+            return classesBelowThreshold;
+        }
+
+        public long getClassesNotShown() {
+            return classesNotShown;
+        }
+
+        public long getClassesMeetingThreshold() {
+            return totalClasses - classesBelowThreshold;
+        }
+
+        /**
+         * @return Coverage rolled up by package, or null if packages were not tracked
+         */
+        public PackageCoverageTree getPackages() {
+            return packages;
+        }
+
+        /**
+         * @return Packages whose classes, including those of their sub-packages, are
+         *         below the coverage threshold in aggregate
+         */
+        public List<PackageCoverageTree.Node> getPackagesBelowThreshold() {
+            return packages == null ? List.of() : packages.getPackagesBelowThreshold(coverageThreshold);
+        }
+
+        /**
+         * @return Counters of the analysis so far, or null if it is not profiled
+         */
+        public AnalysisProfile getProfile() {
+            return profile;
+        }
+    }
+
+    /**
+     * Start the report
+     *
+     * @param coverageThreshold Minimum instruction coverage per class
+     */
+    void begin(double coverageThreshold) throws IOException;
+
+    /**
+     * Report a problem that did not stop the analysis
+     */
+    void warning(String message) throws IOException;
+
+    /**
+     * Report the analysis result for one class
+     *
+     * When the report is limited to the top offenders, classes below the
+     * threshold arrive after all other classes, worst first.
+     *
+     * @param data Class-level counters
+     * @param detail Method- and line-level detail, or null if the input has none
+     * @param belowThreshold Whether the class is below the coverage threshold
+     * @param recommendations Recommendations for the class; empty if it meets the threshold
+     */
+    void classResult(CodeCoverageAgent.CoverageData data, ClassCoverageDetail detail,
+                     boolean belowThreshold, List<String> recommendations) throws IOException;
+
+    /**
+     * @return Whether {@link #classResult} writes anything for classes that meet
+     *         the threshold; if not, the agent may skip those calls
+     */
+    default boolean writesClassesMeetingThreshold() {
+        return true;
+    }
+
+    /**
+     * Report changes against the previous run
+     *
+     * @param diff Changes since the baseline, or null if no baseline was stored yet
+     */
+    void changes(CoverageDiff diff) throws IOException;
+
+    /**
+     * Finish the report and flush the underlying output
+     */
+    void end(Summary summary) throws IOException;
+}
@@ -0,0 +1,307 @@
+package com.example.calculator;
+
+import java.util.*;
+
+/**
+ * Columnar storage for the coverage of many classes.
+ *
+ * Each counter lives in its own primitive {@code int[]} column and package
+ * and class names are dictionary-encoded into {@code int[]} columns, so a
+ * report with millions of classes is held in a handful of arrays rather than
+ * millions of small objects. Threshold filtering, sums and rankings run as
+ * plain loops over the columns. {@link CodeCoverageAgent.CoverageData}
+ * instances are created only for the rows that are handed out.
+ */
+public class CoverageTable {
+
+    /**
+     * JaCoCo counter families, in the column order of the CSV report
+     */
+    public enum Counter {
+        INSTRUCTION, BRANCH, LINE, COMPLEXITY, METHOD
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int COUNTERS = Counter.values().length;
+
+    /**
+     * Maps each distinct string to a dense id
+     */
+    private static class Dictionary {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        int encode(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        String decode(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    private final Dictionary packageNames = new Dictionary();
+    private final Dictionary classNames = new Dictionary();
+    private int[] packageIds;
+    private int[] classNameIds;
+    private int[] firstRowByClassName = new int[INITIAL_CAPACITY];
+    private final int[][] missed = new int[COUNTERS][];
+    private final int[][] covered = new int[COUNTERS][];
+    private int size;
+
+    public CoverageTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of rows to allocate up front
+     */
+    public CoverageTable(int capacity) {
+        capacity = Math.max(capacity, 1);
+        packageIds = new int[capacity];
+        classNameIds = new int[capacity];
+        for (int c = 0; c < COUNTERS; c++) {
+            missed[c] = new int[capacity];
+            covered[c] = new int[capacity];
+        }
+    }
+
+    /**
+     * Build a table from a list of classes
+     */
+    public static CoverageTable of(Collection<CodeCoverageAgent.CoverageData> coverageData) {
+        CoverageTable table = new CoverageTable(coverageData.size());
+        for (CodeCoverageAgent.CoverageData data : coverageData) {
+            table.add(data);
+        }
+        return table;
+    }
+
+    /**
+     * Append a class
+     *
+     * @return Row index of the class
+     */
+    public int add(CodeCoverageAgent.CoverageData data) {
+        if (size == packageIds.length) {
+            grow();
+        }
+        set(size, data);
+        return size++;
+    }
+
+    /**
+     * Replace the class stored in a row
+     */
+    public void set(int row, CodeCoverageAgent.CoverageData data) {
+        packageIds[row] = packageNames.encode(data.getPackageName());
+        int distinctClassNames = classNames.size();
+        int classNameId = classNames.encode(data.getClassName());
+        if (classNameId == distinctClassNames) {
+            if (classNameId == firstRowByClassName.length) {
+                firstRowByClassName = Arrays.copyOf(firstRowByClassName, classNameId * 2);
+            }
+            firstRowByClassName[classNameId] = row;
+        }
+        classNameIds[row] = classNameId;
+        set(row, Counter.INSTRUCTION, data.getInstructionsMissed(), data.getInstructionsCovered());
+        set(row, Counter.BRANCH, data.getBranchesMissed(), data.getBranchesCovered());
+        set(row, Counter.LINE, data.getLinesMissed(), data.getLinesCovered());
+        set(row, Counter.COMPLEXITY, data.getComplexityMissed(), data.getComplexityCovered());
+        set(row, Counter.METHOD, data.getMethodsMissed(), data.getMethodsCovered());
+    }
+
+    private void set(int row, Counter counter, int missedCount, int coveredCount) {
+        missed[counter.ordinal()][row] = missedCount;
+        covered[counter.ordinal()][row] = coveredCount;
+    }
+
+    private void grow() {
+        int capacity = packageIds.length * 2;
+        packageIds = Arrays.copyOf(packageIds, capacity);
+        classNameIds = Arrays.copyOf(classNameIds, capacity);
+        for (int c = 0; c < COUNTERS; c++) {
+            missed[c] = Arrays.copyOf(missed[c], capacity);
+            covered[c] = Arrays.copyOf(covered[c], capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of distinct package names; their strings are stored once each
+     */
+    public int getDistinctPackageCount() {
+        return packageNames.size();
+    }
+
+    /**
+     * @return A view of one row as coverage data
+     */
+    public CodeCoverageAgent.CoverageData get(int row) {
+        checkRow(row);
+        return new CodeCoverageAgent.CoverageData(getPackageName(row), getClassName(row),
+                missed[0][row], covered[0][row], missed[1][row], covered[1][row],
+                missed[2][row], covered[2][row], missed[3][row], covered[3][row],
+                missed[4][row], covered[4][row]);
+    }
+
+    /**
+     * @return Views of the given rows, in the given order
+     */
+    public List<CodeCoverageAgent.CoverageData> get(int[] rows) {
+        List<CodeCoverageAgent.CoverageData> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(get(row));
+        }
+        return result;
+    }
+
+    public String getPackageName(int row) {
+        return packageNames.decode(packageIds[row]);
+    }
+
+    public String getClassName(int row) {
+        return classNames.decode(classNameIds[row]);
+    }
+
+    /**
+     * @return Package and class name of a row, as {@link CodeCoverageAgent.CoverageData#getQualifiedName()}
+     */
+    public String getQualifiedName(int row) {
+        String packageName = getPackageName(row);
+        return packageName.isEmpty() ? getClassName(row) : packageName + "." + getClassName(row);
+    }
+
+    /**
+     * Find a row by class name as it appears in the CLASS column of the CSV
+     * report, using the name dictionary rather than a scan
+     *
+     * @return The first row stored with that class name, or -1 if there is none
+     */
+    public int findRow(String className) {
+        Integer id = classNames.ids.get(className);
+        if (id == null) {
+            return -1;
+        }
+        int row = firstRowByClassName[id];
+        if (classNameIds[row] == id) {
+            return row;
+        }
+        // The first row was overwritten with another class; fall back to a scan
+        for (row = 0; row < size; row++) {
+            if (classNameIds[row] == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    public int getMissed(Counter counter, int row) {
+        checkRow(row);
+        return missed[counter.ordinal()][row];
+    }
+
+    public int getCovered(Counter counter, int row) {
+        checkRow(row);
+        return covered[counter.ordinal()][row];
+    }
+
+    /**
+     * @return Coverage ratio of one counter for one row; 0 if the row has nothing to cover
+     */
+    public double getCoverage(Counter counter, int row) {
+        checkRow(row);
+        return ratio(missed[counter.ordinal()][row], covered[counter.ordinal()][row]);
+    }
+
+    /**
+     * @return Sum of the missed column of a counter over all rows
+     */
+    public long sumMissed(Counter counter) {
+        return sum(missed[counter.ordinal()]);
+    }
+
+    /**
+     * @return Sum of the covered column of a counter over all rows
+     */
+    public long sumCovered(Counter counter) {
+        return sum(covered[counter.ordinal()]);
+    }
+
+    private long sum(int[] column) {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += column[row];
+        }
+        return total;
+    }
+
+    /**
+     * @return Coverage ratio of one counter over all rows; 0 if there is nothing to cover
+     */
+    public double getOverallCoverage(Counter counter) {
+        long missedTotal = sumMissed(counter);
+        long coveredTotal = sumCovered(counter);
+        long total = missedTotal + coveredTotal;
+        return total == 0 ? 0.0 : (double) coveredTotal / total;
+    }
+
+    /**
+     * Find the rows whose instruction coverage is below the threshold
+     *
+     * @return Matching row indices, in row order
+     */
+    public int[] rowsBelowThreshold(double threshold) {
+        int[] instructionsMissed = missed[Counter.INSTRUCTION.ordinal()];
+        int[] instructionsCovered = covered[Counter.INSTRUCTION.ordinal()];
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (ratio(instructionsMissed[row], instructionsCovered[row]) < threshold) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Select the worst rows among the given ones, in the order of
+     * {@link OffenderRanking#compare(CoverageTable, int, int)}
+     *
+     * @param rows Candidate row indices
+     * @param ranking Order in which rows are ranked
+     * @param limit Maximum number of rows to return
+     * @return Up to limit row indices, worst first
+     */
+    public int[] topRows(int[] rows, OffenderRanking ranking, int limit) {
+        TopKSelector<Integer> selector = new TopKSelector<>(limit, (a, b) -> ranking.compare(this, a, b));
+        for (int row : rows) {
+            selector.offer(row);
+        }
+        return selector.result().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static double ratio(int missedCount, int coveredCount) {
+        int total = missedCount + coveredCount;
+        return total == 0 ? 0.0 : (double) coveredCount / total;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+    }
+}
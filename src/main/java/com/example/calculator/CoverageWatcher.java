@@ -0,0 +1,149 @@
+package com.example.calculator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * Watches the directory of an indexed report and reloads the
+ * {@link CoverageIndex} whenever the report is created or modified.
+ *
+ * Events are debounced briefly, because JaCoCo writes a report in several
+ * chunks. The watcher runs on a daemon thread until it is closed.
+ *
+ * While the report directory does not exist, because the first build has
+ * not run yet or {@code ./gradlew clean} deleted it, the watcher waits on its
+ * nearest existing ancestor until the directory is created, then watches it
+ * and reloads the index.
+ */
+public class CoverageWatcher implements Closeable {
+
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final CoverageIndex index;
+    private final Path reportDirectory;
+    private final Path reportFileName;
+    private final WatchService watchService;
+    private final Thread thread;
+    private WatchKey reportKey;
+    private WatchKey ancestorKey;
+
+    /**
+     * Start watching; if the report directory does not exist yet, wait for it
+     * to be created without creating it
+     *
+     * @param index Index to reload on change
+     * @throws IOException if the directory cannot be watched
+     */
+    public CoverageWatcher(CoverageIndex index) throws IOException {
+        this.index = index;
+        Path reportPath = index.getReportPath().toAbsolutePath();
+        this.reportFileName = reportPath.getFileName();
+        this.reportDirectory = reportPath.getParent();
+        this.watchService = reportDirectory.getFileSystem().newWatchService();
+        arm();
+        this.thread = new Thread(this::run, "coverage-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (handle(watchService.take())) {
+                    // Swallow the burst of events caused by a single report write
+                    Thread.sleep(DEBOUNCE_MILLIS);
+                    WatchKey more;
+                    while ((more = watchService.poll()) != null) {
+                        handle(more);
+                    }
+                    index.reloadQuietly();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed by close()
+        } catch (IOException e) {
+            // The report directory can no longer be watched; the index keeps its last snapshot
+        }
+    }
+
+    /**
+     * Consume the events of a key and re-arm the watch if the report directory
+     * was deleted or created
+     *
+     * @return Whether the index should be reloaded
+     */
+    private boolean handle(WatchKey key) throws IOException {
+        if (key != reportKey) {
+            // Something was created on the way to the missing report directory
+            key.pollEvents();
+            key.reset();
+            return key == ancestorKey && arm();
+        }
+        boolean changed = isReportEvent(key);
+        if (!key.reset()) {
+            // The report directory was deleted; wait for it to be created again
+            reportKey = null;
+            changed = arm();
+        }
+        return changed;
+    }
+
+    /**
+     * Watch the report directory or, while it does not exist, its nearest
+     * existing ancestor for the next directory on the way to it
+     *
+     * @return Whether the report directory is watched
+     */
+    private boolean arm() throws IOException {
+        if (ancestorKey != null) {
+            ancestorKey.cancel();
+            ancestorKey = null;
+        }
+        while (true) {
+            Path directory = nearestExistingDirectory();
+            try {
+                if (directory.equals(reportDirectory)) {
+                    reportKey = directory.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    return true;
+                }
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+                if (nearestExistingDirectory().equals(directory)) {
+                    ancestorKey = key;
+                    return false;
+                }
+                // The next directory appeared before the watch was in place
+                key.cancel();
+            } catch (NoSuchFileException e) {
+                // Deleted again before it could be watched; look again
+            }
+        }
+    }
+
+    private Path nearestExistingDirectory() {
+        Path directory = reportDirectory;
+        while (directory.getParent() != null && !Files.isDirectory(directory)) {
+            directory = directory.getParent();
+        }
+        return directory;
+    }
+
+    private boolean isReportEvent(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || reportFileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.calculator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the analysis as a JUnit XML test suite, so that CI systems show each
+ * class below the threshold as a failed test.
+ *
+ * Every class becomes a test case. Because the report is streamed, the test
+ * and failure counts are not known when {@code <testsuite>} is opened, so they
+ * are left for CI consumers to count; the totals are written to
+ * {@code <system-out>} at the end.
+ */
+public class JUnitXmlReportWriter implements CoverageReportWriter {
+
+    private static final String SUITE_NAME = "CodeCoverageAgent";
+
+    private final Writer out;
+    private final List<String> warnings = new ArrayList<>();
+    private double coverageThreshold;
+
+    public JUnitXmlReportWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(double coverageThreshold) throws IOException {
+        this.coverageThreshold = coverageThreshold;
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<testsuites name=\"" + SUITE_NAME + "\">\n");
+        out.write("<testsuite name=\"" + SUITE_NAME + "\">\n");
+    }
+
+    @Override
+    public void warning(String message) {
+        warnings.add(message);
+    }
+
+    @Override
+    public void classResult(CodeCoverageAgent.CoverageData data, ClassCoverageDetail detail,
+                            boolean belowThreshold, List<String> recommendations) throws IOException {
+        out.write("  <testcase classname=\"" + escape(data.getQualifiedName()) + "\" name=\"instruction coverage\"");
+        if (!belowThreshold) {
+            out.write("/>\n");
+            return;
+        }
+        out.write(">\n    <failure type=\"coverage\" message=\"" + escape(String.format("Coverage %.2f%% is below threshold %.2f%%",
+                data.getInstructionCoverage() * 100, coverageThreshold * 100)) + "\">");
+        for (String recommendation : recommendations) {
+            out.write(escape(recommendation));
+            out.write("\n");
+        }
+        out.write("</failure>\n  </testcase>\n");
+    }
+
+    @Override
+    public void changes(CoverageDiff diff) {
+        // Changes against the baseline have no JUnit representation
+    }
+
+    @Override
+    public void end(Summary summary) throws IOException {
+        if (summary.getPackages() != null) {
+            for (PackageCoverageTree.Node node : summary.getPackages().getPackages()) {
+                out.write("  <testcase classname=\"" + escape(TextReportWriter.packageName(node))
+                        + "\" name=\"package instruction coverage\"");
+                if (!node.isBelowThreshold(coverageThreshold)) {
+                    out.write("/>\n");
+                    continue;
+                }
+                out.write(">\n    <failure type=\"coverage\" message=\"" + escape(String.format(
+                        "Package coverage %.2f%% is below threshold %.2f%%",
+                        node.getInstructionCoverage() * 100, coverageThreshold * 100)) + "\"/>\n  </testcase>\n");
+            }
+        }
+        out.write("  <system-out>" + escape(String.format(
+                "Overall coverage: %.2f%%\nTotal classes: %d\nClasses below threshold: %d\nClasses not shown: %d",
+                summary.getOverallCoverage() * 100, summary.getTotalClasses(),
+                summary.getClassesBelowThreshold(), summary.getClassesNotShown())) + "</system-out>\n");
+        if (!warnings.isEmpty()) {
+            out.write("  <system-err>" + escape(String.join("\n", warnings)) + "</system-err>\n");
+        }
+        out.write("</testsuite>\n");
+        out.write("</testsuites>\n");
+        out.flush();
+    }
+
+    /**
+     * Escape text for use in XML content and attribute values
+     */
+    static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                case '\n':
+                case '\t':
+                    escaped.append(c);
+                    break;
+                default:
+                    if (c >= 0x20) {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+}
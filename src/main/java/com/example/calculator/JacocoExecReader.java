@@ -0,0 +1,110 @@
+package com.example.calculator;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.tools.ExecFileLoader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Computes coverage in-process from binary JaCoCo execution data
+ * ({@code jacoco.exec}) and the compiled classes, using the JaCoCo core library.
+ *
+ * This skips the {@code jacocoTestReport} task entirely: no HTML, XML or CSV
+ * report is rendered before the agent can analyze coverage.
+ */
+public class JacocoExecReader {
+
+    private final List<Path> classDirectories;
+
+    /**
+     * @param classDirectories Directories (or jar files) holding the compiled classes that were tested
+     */
+    public JacocoExecReader(List<Path> classDirectories) {
+        this.classDirectories = List.copyOf(classDirectories);
+    }
+
+    /**
+     * Analyze the compiled classes against the given execution data
+     *
+     * @param execFile Path to the JaCoCo execution data file
+     * @return Method-, line- and branch-level coverage for each class
+     * @throws IOException if the execution data or the classes cannot be read
+     */
+    public List<ClassCoverageDetail> read(Path execFile) throws IOException {
+        ExecFileLoader loader = new ExecFileLoader();
+        loader.load(execFile.toFile());
+
+        CoverageBuilder builder = new CoverageBuilder();
+        Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), builder);
+        for (Path classDirectory : classDirectories) {
+            analyzer.analyzeAll(classDirectory.toFile());
+        }
+
+        Collection<IClassCoverage> classes = builder.getClasses();
+        List<ClassCoverageDetail> details = new ArrayList<>(classes.size());
+        for (IClassCoverage cls : classes) {
+            details.add(toDetail(cls));
+        }
+        return details;
+    }
+
+    private static ClassCoverageDetail toDetail(IClassCoverage cls) {
+        List<ClassCoverageDetail.MethodCoverage> methods = new ArrayList<>();
+        for (IMethodCoverage method : cls.getMethods()) {
+            methods.add(new ClassCoverageDetail.MethodCoverage(method.getName(), method.getDesc(),
+                    Math.max(method.getFirstLine(), 0), counter(method.getInstructionCounter()),
+                    counter(method.getBranchCounter()), counter(method.getLineCounter())));
+        }
+
+        List<ClassCoverageDetail.LineRange> uncoveredLines = new ArrayList<>();
+        List<Integer> partialBranchLines = new ArrayList<>();
+        if (cls.getFirstLine() != ISourceNode.UNKNOWN_LINE) {
+            int rangeStart = -1;
+            int rangeEnd = -1;
+            for (int nr = cls.getFirstLine(); nr <= cls.getLastLine(); nr++) {
+                ILine line = cls.getLine(nr);
+                int status = line.getStatus();
+                if (status == ICounter.EMPTY) {
+                    // Lines without code do not interrupt a range, matching the XML report
+                    continue;
+                }
+                if (status == ICounter.NOT_COVERED) {
+                    if (rangeStart < 0) {
+                        rangeStart = nr;
+                    }
+                    rangeEnd = nr;
+                    continue;
+                }
+                if (rangeStart >= 0) {
+                    uncoveredLines.add(new ClassCoverageDetail.LineRange(rangeStart, rangeEnd));
+                    rangeStart = -1;
+                }
+                if (line.getBranchCounter().getMissedCount() > 0) {
+                    partialBranchLines.add(nr);
+                }
+            }
+            if (rangeStart >= 0) {
+                uncoveredLines.add(new ClassCoverageDetail.LineRange(rangeStart, rangeEnd));
+            }
+        }
+
+        return new ClassCoverageDetail(cls.getPackageName(), cls.getName(), cls.getSourceFileName(),
+                counter(cls.getInstructionCounter()), counter(cls.getBranchCounter()),
+                counter(cls.getLineCounter()), counter(cls.getComplexityCounter()),
+                counter(cls.getMethodCounter()), methods, uncoveredLines, partialBranchLines);
+    }
+
+    private static ClassCoverageDetail.Counter counter(ICounter counter) {
+        return new ClassCoverageDetail.Counter(counter.getMissedCount(), counter.getCoveredCount());
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.calculator;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Streaming StAX reader for JaCoCo XML reports.
+ *
+ * The report is read element by element, so memory use is bounded by the size
+ * of the largest package rather than by the size of the whole report. Classes
+ * are buffered until the end of their package because JaCoCo writes the
+ * per-line data ({@code <sourcefile>}) after the classes of a package.
+ *
+ * Uncovered lines of a source file are attributed to the class whose method
+ * starts closest before them, which also separates inner classes that share a
+ * source file with their outer class.
+ */
+public class JacocoXmlReportParser {
+
+    private final XMLInputFactory inputFactory;
+
+    public JacocoXmlReportParser() {
+        inputFactory = XMLInputFactory.newInstance();
+        // JaCoCo reports reference report.dtd; never resolve it
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Parse a JaCoCo XML report into a list
+     *
+     * @param reportPath Path to the JaCoCo XML report
+     * @return Coverage detail for each class, in report order
+     * @throws IOException if the report cannot be read or is not well-formed
+     */
+    public List<ClassCoverageDetail> parse(Path reportPath) throws IOException {
+        List<ClassCoverageDetail> details = new ArrayList<>();
+        parse(reportPath, details::add);
+        return details;
+    }
+
+    /**
+     * Stream a JaCoCo XML report, handing each class to the consumer as soon as
+     * its package has been fully read
+     *
+     * @param reportPath Path to the JaCoCo XML report
+     * @param consumer Receives the coverage detail for each class
+     * @throws IOException if the report cannot be read or is not well-formed
+     */
+    public void parse(Path reportPath, Consumer<ClassCoverageDetail> consumer) throws IOException {
+        try (InputStream in = Files.newInputStream(reportPath)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                readReport(reader, consumer);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed JaCoCo XML report " + reportPath + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void readReport(XMLStreamReader reader, Consumer<ClassCoverageDetail> consumer)
+            throws XMLStreamException {
+        PackageState pkg = null;
+        ClassState cls = null;
+        MethodState method = null;
+        SourceFileState sourceFile = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "package":
+                        pkg = new PackageState(reader.getAttributeValue(null, "name"));
+                        break;
+                    case "class":
+                        if (pkg != null) {
+                            cls = new ClassState(reader.getAttributeValue(null, "name"),
+                                    reader.getAttributeValue(null, "sourcefilename"));
+                            pkg.add(cls);
+                        }
+                        break;
+                    case "method":
+                        if (cls != null) {
+                            method = new MethodState(reader.getAttributeValue(null, "name"),
+                                    reader.getAttributeValue(null, "desc"),
+                                    intAttribute(reader, "line"));
+                        }
+                        break;
+                    case "sourcefile":
+                        if (pkg != null) {
+                            sourceFile = new SourceFileState(pkg.classesOf(reader.getAttributeValue(null, "name")));
+                        }
+                        break;
+                    case "line":
+                        if (sourceFile != null) {
+                            sourceFile.line(intAttribute(reader, "nr"),
+                                    intAttribute(reader, "mi"), intAttribute(reader, "ci"),
+                                    intAttribute(reader, "mb"));
+                        }
+                        break;
+                    case "counter":
+                        readCounter(reader, method != null ? method.counters
+                                : cls != null ? cls.counters : null);
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "package":
+                        if (pkg != null) {
+                            for (ClassState state : pkg.classes) {
+                                consumer.accept(state.toDetail(pkg.name));
+                            }
+                        }
+                        pkg = null;
+                        break;
+                    case "class":
+                        cls = null;
+                        break;
+                    case "method":
+                        if (cls != null && method != null) {
+                            cls.methods.add(method);
+                        }
+                        method = null;
+                        break;
+                    case "sourcefile":
+                        if (sourceFile != null) {
+                            sourceFile.finish();
+                        }
+                        sourceFile = null;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    private static void readCounter(XMLStreamReader reader, Map<String, ClassCoverageDetail.Counter> target) {
+        if (target == null) {
+            // Source file, package and report totals are derived from the classes
+            return;
+        }
+        String type = reader.getAttributeValue(null, "type");
+        if (type != null) {
+            target.put(type, new ClassCoverageDetail.Counter(intAttribute(reader, "missed"),
+                    intAttribute(reader, "covered")));
+        }
+    }
+
+    private static int intAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static ClassCoverageDetail.Counter counter(Map<String, ClassCoverageDetail.Counter> counters, String type) {
+        return counters.getOrDefault(type, ClassCoverageDetail.Counter.EMPTY);
+    }
+
+    private static class PackageState {
+        final String name;
+        final List<ClassState> classes = new ArrayList<>();
+        // Looking up the classes of each source file by scanning the package
+        // would be quadratic in the size of the package
+        final Map<String, List<ClassState>> classesBySourceFile = new HashMap<>();
+
+        PackageState(String name) {
+            this.name = name;
+        }
+
+        void add(ClassState cls) {
+            classes.add(cls);
+            classesBySourceFile.computeIfAbsent(cls.sourceFileName, file -> new ArrayList<>(1)).add(cls);
+        }
+
+        List<ClassState> classesOf(String sourceFileName) {
+            return classesBySourceFile.getOrDefault(sourceFileName, List.of());
+        }
+    }
+
+    private static class ClassState {
+        final String name;
+        final String sourceFileName;
+        final Map<String, ClassCoverageDetail.Counter> counters = new HashMap<>();
+        final List<MethodState> methods = new ArrayList<>();
+        final List<ClassCoverageDetail.LineRange> uncoveredLines = new ArrayList<>();
+        final List<Integer> partialBranchLines = new ArrayList<>();
+
+        ClassState(String name, String sourceFileName) {
+            this.name = name;
+            this.sourceFileName = sourceFileName;
+        }
+
+        ClassCoverageDetail toDetail(String packageName) {
+            List<ClassCoverageDetail.MethodCoverage> methodCoverage = new ArrayList<>(methods.size());
+            for (MethodState method : methods) {
+                methodCoverage.add(new ClassCoverageDetail.MethodCoverage(method.name, method.descriptor,
+                        method.line, counter(method.counters, "INSTRUCTION"),
+                        counter(method.counters, "BRANCH"), counter(method.counters, "LINE")));
+            }
+            return new ClassCoverageDetail(packageName, name, sourceFileName,
+                    counter(counters, "INSTRUCTION"), counter(counters, "BRANCH"),
+                    counter(counters, "LINE"), counter(counters, "COMPLEXITY"),
+                    counter(counters, "METHOD"), methodCoverage, uncoveredLines, partialBranchLines);
+        }
+    }
+
+    private static class MethodState {
+        final String name;
+        final String descriptor;
+        final int line;
+        final Map<String, ClassCoverageDetail.Counter> counters = new HashMap<>();
+
+        MethodState(String name, String descriptor, int line) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Collects uncovered line ranges of one source file and hands them to the
+     * owning classes
+     */
+    private static class SourceFileState {
+        private final ClassState[] owners;
+        private final int[] ownerStartLines;
+        private final ClassState defaultOwner;
+
+        private ClassState rangeOwner;
+        private int rangeStart;
+        private int rangeEnd;
+
+        SourceFileState(List<ClassState> classes) {
+            List<int[]> starts = new ArrayList<>();
+            for (int i = 0; i < classes.size(); i++) {
+                for (MethodState method : classes.get(i).methods) {
+                    if (method.line > 0) {
+                        starts.add(new int[]{method.line, i});
+                    }
+                }
+            }
+            starts.sort(Comparator.comparingInt(entry -> entry[0]));
+            owners = new ClassState[starts.size()];
+            ownerStartLines = new int[starts.size()];
+            for (int i = 0; i < starts.size(); i++) {
+                ownerStartLines[i] = starts.get(i)[0];
+                owners[i] = classes.get(starts.get(i)[1]);
+            }
+            defaultOwner = owners.length > 0 ? owners[0] : classes.isEmpty() ? null : classes.get(0);
+        }
+
+        void line(int nr, int missedInstructions, int coveredInstructions, int missedBranches) {
+            ClassState owner = ownerOf(nr);
+            if (owner == null) {
+                return;
+            }
+            if (coveredInstructions == 0 && missedInstructions > 0) {
+                if (rangeOwner == owner) {
+                    rangeEnd = nr;
+                } else {
+                    closeRange();
+                    rangeOwner = owner;
+                    rangeStart = nr;
+                    rangeEnd = nr;
+                }
+            } else {
+                closeRange();
+                if (coveredInstructions > 0 && missedBranches > 0) {
+                    owner.partialBranchLines.add(nr);
+                }
+            }
+        }
+
+        void finish() {
+            closeRange();
+        }
+
+        private void closeRange() {
+            if (rangeOwner != null) {
+                rangeOwner.uncoveredLines.add(new ClassCoverageDetail.LineRange(rangeStart, rangeEnd));
+                rangeOwner = null;
+            }
+        }
+
+        private ClassState ownerOf(int nr) {
+            int index = Arrays.binarySearch(ownerStartLines, nr);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index >= 0 ? owners[index] : defaultOwner;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.calculator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the analysis as a single JSON document.
+ *
+ * Only classes below the threshold are listed; the summary carries the totals.
+ */
+public class JsonReportWriter implements CoverageReportWriter {
+
+    private final Writer out;
+    private final List<String> warnings = new ArrayList<>();
+    private boolean firstClass = true;
+    private boolean classesClosed;
+
+    public JsonReportWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(double coverageThreshold) throws IOException {
+        out.write("{\"coverageThreshold\":" + number(coverageThreshold) + ",\"classes\":[");
+    }
+
+    @Override
+    public void warning(String message) {
+        warnings.add(message);
+    }
+
+    @Override
+    public void classResult(CodeCoverageAgent.CoverageData data, ClassCoverageDetail detail,
+                            boolean belowThreshold, List<String> recommendations) throws IOException {
+        if (!belowThreshold) {
+            return;
+        }
+        if (!firstClass) {
+            out.write(",");
+        }
+        firstClass = false;
+        out.write("\n{\"className\":" + string(data.getClassName())
+                + ",\"qualifiedName\":" + string(data.getQualifiedName()));
+        out.write(",\"instructionCoverage\":" + number(data.getInstructionCoverage())
+                + ",\"branchCoverage\":" + number(data.getBranchCoverage())
+                + ",\"lineCoverage\":" + number(data.getLineCoverage())
+                + ",\"complexityCoverage\":" + number(data.getComplexityCoverage())
+                + ",\"methodCoverage\":" + number(data.getMethodCoverage())
+                + ",\"instructionsMissed\":" + data.getInstructionsMissed()
+                + ",\"branchesMissed\":" + data.getBranchesMissed()
+                + ",\"linesMissed\":" + data.getLinesMissed()
+                + ",\"complexityMissed\":" + data.getComplexityMissed()
+                + ",\"methodsMissed\":" + data.getMethodsMissed()
+                + ",\"recommendations\":");
+        writeStrings(recommendations);
+        out.write("}");
+    }
+
+    @Override
+    public boolean writesClassesMeetingThreshold() {
+        return false;
+    }
+
+    @Override
+    public void changes(CoverageDiff diff) throws IOException {
+        closeClasses();
+        out.write(",\"changes\":");
+        if (diff == null) {
+            out.write("null");
+        } else {
+            out.write("{\"baselineCoverage\":" + number(diff.getBaselineCoverage())
+                    + ",\"currentCoverage\":" + number(diff.getCurrentCoverage())
+                    + ",\"overallDelta\":" + number(diff.getOverallDelta())
+                    + ",\"newlyBelowThreshold\":");
+            writeClassNames(diff.getNewlyBelowThreshold());
+            out.write(",\"dropped\":");
+            writeClassNames(diff.getDropped());
+            out.write(",\"improved\":");
+            writeClassNames(diff.getImproved());
+            out.write("}");
+        }
+    }
+
+    @Override
+    public void end(Summary summary) throws IOException {
+        closeClasses();
+        out.write(",\"warnings\":");
+        writeStrings(warnings);
+        out.write(",\"packagesBelowThreshold\":[");
+        List<PackageCoverageTree.Node> packagesBelowThreshold = summary.getPackagesBelowThreshold();
+        for (int i = 0; i < packagesBelowThreshold.size(); i++) {
+            PackageCoverageTree.Node node = packagesBelowThreshold.get(i);
+            if (i > 0) {
+                out.write(",");
+            }
+            out.write("{\"name\":" + string(node.getName())
+                    + ",\"instructionCoverage\":" + number(node.getInstructionCoverage())
+                    + ",\"branchCoverage\":" + number(node.getBranchCoverage())
+                    + ",\"lineCoverage\":" + number(node.getLineCoverage())
+                    + ",\"complexityCoverage\":" + number(node.getComplexityCoverage())
+                    + ",\"methodCoverage\":" + number(node.getMethodCoverage())
+                    + ",\"classes\":" + node.getClassCount() + "}");
+        }
+        out.write("]");
+        out.write(",\"summary\":{\"overallCoverage\":" + number(summary.getOverallCoverage())
+                + ",\"totalClasses\":" + summary.getTotalClasses()
+                + ",\"classesBelowThreshold\":" + summary.getClassesBelowThreshold()
+                + ",\"classesNotShown\":" + summary.getClassesNotShown()
+                + ",\"classesMeetingThreshold\":" + summary.getClassesMeetingThreshold()
+                + "}");
+        if (summary.getProfile() != null) {
+            writeProfile(summary.getProfile());
+        }
+        out.write("}\n");
+        out.flush();
+    }
+
+    /**
+     * Write the timing summary of the analysis so far
+     */
+    private void writeProfile(AnalysisProfile profile) throws IOException {
+        out.write(",\"profile\":{\"elapsedNanos\":" + profile.getElapsedNanos()
+                + ",\"rows\":" + profile.getRows()
+                + ",\"bytes\":" + profile.getBytes()
+                + ",\"rowsPerSecond\":" + number(profile.getRowsPerSecond())
+                + ",\"megabytesPerSecond\":" + number(profile.getMegabytesPerSecond())
+                + ",\"phases\":[");
+        AnalysisProfile.Phase[] phases = AnalysisProfile.Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            if (i > 0) {
+                out.write(",");
+            }
+            out.write("{\"name\":" + string(phases[i].getLabel())
+                    + ",\"nanos\":" + profile.getNanos(phases[i])
+                    + ",\"allocatedBytes\":" + profile.getAllocatedBytes(phases[i]) + "}");
+        }
+        out.write("]}");
+    }
+
+    private void closeClasses() throws IOException {
+        if (!classesClosed) {
+            classesClosed = true;
+            out.write("\n]");
+        }
+    }
+
+    private void writeStrings(List<String> values) throws IOException {
+        out.write("[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(",");
+            }
+            out.write(string(values.get(i)));
+        }
+        out.write("]");
+    }
+
+    private void writeClassNames(List<CodeCoverageAgent.CoverageData> classes) throws IOException {
+        out.write("[");
+        for (int i = 0; i < classes.size(); i++) {
+            if (i > 0) {
+                out.write(",");
+            }
+            out.write(string(classes.get(i).getQualifiedName()));
+        }
+        out.write("]");
+    }
+
+    static String number(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    /**
+     * Quote and escape a string as a JSON string literal
+     */
+    static String string(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
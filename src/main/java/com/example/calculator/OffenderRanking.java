@@ -0,0 +1,89 @@
+package com.example.calculator;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Orders classes below the coverage threshold from worst to least bad.
+ *
+ * The same order is available for {@link CodeCoverageAgent.CoverageData}
+ * views and for the rows of a {@link CoverageTable}, so ranking a table does
+ * not create a view per comparison.
+ */
+public enum OffenderRanking {
+    /** Most missed instructions first */
+    MISSED_INSTRUCTIONS(CoverageTable.Counter.INSTRUCTION),
+    /** Most missed lines first */
+    MISSED_LINES(CoverageTable.Counter.LINE),
+    /** Most missed methods first */
+    MISSED_METHODS(CoverageTable.Counter.METHOD),
+    /** Lowest instruction coverage ratio first */
+    COVERAGE_RATIO(null);
+
+    private final CoverageTable.Counter missedCounter;
+    private final Comparator<CodeCoverageAgent.CoverageData> comparator;
+
+    OffenderRanking(CoverageTable.Counter missedCounter) {
+        this.missedCounter = missedCounter;
+        this.comparator = (a, b) -> {
+            int result = compare(missedCounter == null ? 0 : a.getMissed(missedCounter),
+                    a.getInstructionsMissed(), a.getInstructionsCovered(),
+                    missedCounter == null ? 0 : b.getMissed(missedCounter),
+                    b.getInstructionsMissed(), b.getInstructionsCovered());
+            return result != 0 ? result : a.getQualifiedName().compareTo(b.getQualifiedName());
+        };
+    }
+
+    /**
+     * @return Comparator that sorts the worst offender first
+     */
+    public Comparator<CodeCoverageAgent.CoverageData> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Compare two rows of a table in the order of {@link #comparator()}
+     *
+     * @return A negative number if row a is the worse offender
+     */
+    public int compare(CoverageTable table, int a, int b) {
+        CoverageTable.Counter instruction = CoverageTable.Counter.INSTRUCTION;
+        int result = compare(missedCounter == null ? 0 : table.getMissed(missedCounter, a),
+                table.getMissed(instruction, a), table.getCovered(instruction, a),
+                missedCounter == null ? 0 : table.getMissed(missedCounter, b),
+                table.getMissed(instruction, b), table.getCovered(instruction, b));
+        return result != 0 ? result : table.getQualifiedName(a).compareTo(table.getQualifiedName(b));
+    }
+
+    /**
+     * Ties on the ranked counter are broken by coverage ratio, then missed
+     * instructions, then (by the callers) fully qualified class name, so the order is deterministic
+     */
+    private static int compare(int rankedMissedA, int instructionsMissedA, int instructionsCoveredA,
+                               int rankedMissedB, int instructionsMissedB, int instructionsCoveredB) {
+        int result = Integer.compare(rankedMissedB, rankedMissedA);
+        if (result == 0) {
+            result = Double.compare(ratio(instructionsMissedA, instructionsCoveredA),
+                                    ratio(instructionsMissedB, instructionsCoveredB));
+        }
+        if (result == 0) {
+            result = Integer.compare(instructionsMissedB, instructionsMissedA);
+        }
+        return result;
+    }
+
+    private static double ratio(int missed, int covered) {
+        int total = missed + covered;
+        return total == 0 ? 0.0 : (double) covered / total;
+    }
+
+    /**
+     * Look up a ranking by name, ignoring case and accepting hyphens,
+     * e.g. {@code missed-lines}
+     *
+     * @throws IllegalArgumentException if there is no such ranking
+     */
+    public static OffenderRanking fromName(String name) {
+        return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.calculator;
+
+import java.util.*;
+
+/**
+ * Package hierarchy with coverage counters rolled up at every level.
+ *
+ * Each node holds the aggregate instruction, branch, line, complexity and
+ * method counters of all classes in its package and all sub-packages, so
+ * coverage for any package or subtree (and, at the root, for the whole
+ * module) is available without iterating over classes. Package coverage
+ * always means the coverage of that subtree. Nodes
+ * are also indexed by their full package name, so looking one up is a single
+ * hash lookup. Adding, removing or updating a class adjusts the counters of
+ * its package and every ancestor, which takes time proportional to the
+ * package depth.
+ *
+ * The tree keeps no per-class state; callers that update classes pass in the
+ * previous counters.
+ */
+public class PackageCoverageTree {
+
+    /**
+     * A package and the rolled-up counters of its subtree
+     */
+    public static class Node {
+        private final String name;
+        private final String simpleName;
+        private final Node parent;
+        private final Map<String, Node> children = new TreeMap<>();
+        private final long[] missed = new long[CoverageTable.Counter.values().length];
+        private final long[] covered = new long[CoverageTable.Counter.values().length];
+        private int classCount;
+        private int directClassCount;
+
+        private Node(String name, String simpleName, Node parent) {
+            this.name = name;
+            this.simpleName = simpleName;
+            this.parent = parent;
+        }
+
+        /**
+         * @return Full package name in dotted notation; empty for the root
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Last segment of the package name; empty for the root
+         */
+        public String getSimpleName() {
+            return simpleName;
+        }
+
+        public Node getParent() {
+            return parent;
+        }
+
+        /**
+         * @return Direct sub-packages, ordered by name
+         */
+        public Collection<Node> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        public long getInstructionsMissed() {
+            return missed[CoverageTable.Counter.INSTRUCTION.ordinal()];
+        }
+
+        public long getInstructionsCovered() {
+            return covered[CoverageTable.Counter.INSTRUCTION.ordinal()];
+        }
+
+        public long getBranchesMissed() {
+            return missed[CoverageTable.Counter.BRANCH.ordinal()];
+        }
+
+        public long getBranchesCovered() {
+            return covered[CoverageTable.Counter.BRANCH.ordinal()];
+        }
+
+        public long getLinesMissed() {
+            return missed[CoverageTable.Counter.LINE.ordinal()];
+        }
+
+        public long getLinesCovered() {
+            return covered[CoverageTable.Counter.LINE.ordinal()];
+        }
+
+        public long getComplexityMissed() {
+            return missed[CoverageTable.Counter.COMPLEXITY.ordinal()];
+        }
+
+        public long getComplexityCovered() {
+            return covered[CoverageTable.Counter.COMPLEXITY.ordinal()];
+        }
+
+        public long getMethodsMissed() {
+            return missed[CoverageTable.Counter.METHOD.ordinal()];
+        }
+
+        public long getMethodsCovered() {
+            return covered[CoverageTable.Counter.METHOD.ordinal()];
+        }
+
+        public long getMissed(CoverageTable.Counter counter) {
+            return missed[counter.ordinal()];
+        }
+
+        public long getCovered(CoverageTable.Counter counter) {
+            return covered[counter.ordinal()];
+        }
+
+        /**
+         * @return Number of classes in this package and all sub-packages
+         */
+        public int getClassCount() {
+            return classCount;
+        }
+
+        /**
+         * @return Number of classes declared directly in this package
+         */
+        public int getDirectClassCount() {
+            return directClassCount;
+        }
+
+        public double getInstructionCoverage() {
+            return getCoverage(CoverageTable.Counter.INSTRUCTION);
+        }
+
+        public double getBranchCoverage() {
+            return getCoverage(CoverageTable.Counter.BRANCH);
+        }
+
+        public double getLineCoverage() {
+            return getCoverage(CoverageTable.Counter.LINE);
+        }
+
+        public double getComplexityCoverage() {
+            return getCoverage(CoverageTable.Counter.COMPLEXITY);
+        }
+
+        public double getMethodCoverage() {
+            return getCoverage(CoverageTable.Counter.METHOD);
+        }
+
+        public double getCoverage(CoverageTable.Counter counter) {
+            long total = missed[counter.ordinal()] + covered[counter.ordinal()];
+            return total == 0 ? 0.0 : (double) covered[counter.ordinal()] / total;
+        }
+
+        public boolean isBelowThreshold(double threshold) {
+            return getInstructionCoverage() < threshold;
+        }
+
+        private void apply(CodeCoverageAgent.CoverageData data, int sign) {
+            for (CoverageTable.Counter counter : CoverageTable.Counter.values()) {
+                missed[counter.ordinal()] += sign * (long) data.getMissed(counter);
+                covered[counter.ordinal()] += sign * (long) data.getCovered(counter);
+            }
+            classCount += sign;
+        }
+
+        private void apply(CoverageTable table, int row, int sign) {
+            for (CoverageTable.Counter counter : CoverageTable.Counter.values()) {
+                missed[counter.ordinal()] += sign * (long) table.getMissed(counter, row);
+                covered[counter.ordinal()] += sign * (long) table.getCovered(counter, row);
+            }
+            classCount += sign;
+        }
+    }
+
+    private final Node root = new Node("", "", null);
+    private final Map<String, Node> packages = new HashMap<>();
+
+    public PackageCoverageTree() {
+        packages.put("", root);
+    }
+
+    /**
+     * Build a tree from a list of classes
+     */
+    public static PackageCoverageTree of(Collection<CodeCoverageAgent.CoverageData> coverageData) {
+        PackageCoverageTree tree = new PackageCoverageTree();
+        for (CodeCoverageAgent.CoverageData data : coverageData) {
+            tree.add(data);
+        }
+        return tree;
+    }
+
+    /**
+     * Build a tree from all rows of a table, without creating a view per row
+     */
+    public static PackageCoverageTree of(CoverageTable table) {
+        PackageCoverageTree tree = new PackageCoverageTree();
+        for (int row = 0; row < table.size(); row++) {
+            tree.add(table, row);
+        }
+        return tree;
+    }
+
+    /**
+     * Copy the tree, so that the copy can be updated while readers still use
+     * the original; takes time proportional to the number of packages
+     */
+    public PackageCoverageTree copy() {
+        PackageCoverageTree copy = new PackageCoverageTree();
+        copy.copyFrom(root, copy.root);
+        return copy;
+    }
+
+    /**
+     * @return The root node, holding the totals for all classes
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Look up a package by its full dotted name
+     *
+     * @param packageName Package name, e.g. {@code com.example}; empty for the root
+     * @return The package node, or null if no class was added under that package
+     */
+    public Node getPackage(String packageName) {
+        return packages.get(packageName);
+    }
+
+    /**
+     * Add a class to its package and roll its counters up to the root
+     */
+    public void add(CodeCoverageAgent.CoverageData data) {
+        Node node = getOrCreate(data.getPackageName());
+        node.directClassCount++;
+        for (; node != null; node = node.parent) {
+            node.apply(data, 1);
+        }
+    }
+
+    /**
+     * Add the class stored in a table row
+     */
+    public void add(CoverageTable table, int row) {
+        Node node = getOrCreate(table.getPackageName(row));
+        node.directClassCount++;
+        for (; node != null; node = node.parent) {
+            node.apply(table, row, 1);
+        }
+    }
+
+    /**
+     * Remove a previously added class, dropping packages that become empty
+     *
+     * @param data The counters the class was added with
+     * @return Whether the class's package was present
+     */
+    public boolean remove(CodeCoverageAgent.CoverageData data) {
+        Node node = packages.get(data.getPackageName());
+        if (node == null || node.directClassCount == 0) {
+            return false;
+        }
+        node.directClassCount--;
+        for (; node != null; node = node.parent) {
+            node.apply(data, -1);
+            if (node.classCount == 0 && node != root) {
+                packages.remove(node.name);
+                node.parent.children.remove(node.simpleName);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replace the counters of a class
+     *
+     * @param previous The counters the class was added with
+     * @param current The new counters of the class
+     */
+    public void update(CodeCoverageAgent.CoverageData previous, CodeCoverageAgent.CoverageData current) {
+        Node node = packages.get(current.getPackageName());
+        if (node == null || !previous.getPackageName().equals(current.getPackageName())) {
+            remove(previous);
+            add(current);
+            return;
+        }
+        for (; node != null; node = node.parent) {
+            node.apply(previous, -1);
+            node.apply(current, 1);
+        }
+    }
+
+    /**
+     * @return Packages that directly declare at least one class, ordered by name
+     */
+    public List<Node> getPackages() {
+        List<Node> result = new ArrayList<>();
+        for (Node node : packages.values()) {
+            if (node.directClassCount > 0) {
+                result.add(node);
+            }
+        }
+        result.sort(Comparator.comparing(Node::getName));
+        return result;
+    }
+
+    /**
+     * @return Packages that directly declare classes and whose instruction
+     *         coverage, rolled up over their subtree, is below the threshold,
+     *         ordered by name
+     */
+    public List<Node> getPackagesBelowThreshold(double threshold) {
+        List<Node> result = new ArrayList<>();
+        for (Node node : getPackages()) {
+            if (node.isBelowThreshold(threshold)) {
+                result.add(node);
+            }
+        }
+        return result;
+    }
+
+    private void copyFrom(Node source, Node target) {
+        System.arraycopy(source.missed, 0, target.missed, 0, source.missed.length);
+        System.arraycopy(source.covered, 0, target.covered, 0, source.covered.length);
+        target.classCount = source.classCount;
+        target.directClassCount = source.directClassCount;
+        for (Node child : source.children.values()) {
+            Node node = new Node(child.name, child.simpleName, target);
+            target.children.put(child.simpleName, node);
+            packages.put(child.name, node);
+            copyFrom(child, node);
+        }
+    }
+
+    private Node getOrCreate(String packageName) {
+        Node node = packages.get(packageName);
+        if (node != null) {
+            return node;
+        }
+        int separator = packageName.lastIndexOf('.');
+        Node parent = separator < 0 ? root : getOrCreate(packageName.substring(0, separator));
+        String simpleName = packageName.substring(separator + 1);
+        node = new Node(packageName, simpleName, parent);
+        parent.children.put(simpleName, node);
+        packages.put(packageName, node);
+        return node;
+    }
+}
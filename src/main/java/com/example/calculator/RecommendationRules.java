@@ -0,0 +1,662 @@
+package com.example.calculator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Rules that turn the coverage of a class below the threshold into
+ * recommendations, read from a text file with one rule per line:
+ *
+ * <pre>
+ * # package        class               conditions...        : recommendation | recommendation
+ * com.example.**   suffix:Controller   branch&lt;0.50 stop    : Test error handling scenarios
+ * </pre>
+ *
+ * <ul>
+ * <li>Package: {@code *} for any package, {@code com.example} for exactly that
+ * package, or {@code com.example.**} for the package and all packages below it.</li>
+ * <li>Class: {@code *}, {@code name:Foo}, {@code prefix:Foo}, {@code suffix:Foo},
+ * {@code contains:Foo} or {@code regex:<java regex>}; a regex has to match the
+ * whole simple class name and cannot contain whitespace.</li>
+ * <li>Conditions: {@code <counter><op><ratio>} with counter one of instruction,
+ * branch, line, method, complexity and op {@code <} or {@code >=}, e.g.
+ * {@code line<0.60}. A condition never holds for a class without any items of
+ * that counter, e.g. a branch condition for a class without branches.</li>
+ * <li>{@code stop}: skip all later rules for a class this rule applied to.</li>
+ * <li>Recommendations, separated by {@code |}, may refer to {@code {class}},
+ * {@code {package}} and {@code {<counter>.missed}}, {@code {<counter>.covered}}
+ * or {@code {<counter>.coverage}}.</li>
+ * </ul>
+ *
+ * The agent only asks for recommendations for classes below its instruction
+ * coverage threshold. Conditions narrow down which of those classes a rule
+ * applies to; no rule, however strict, flags a class that meets the threshold.
+ *
+ * Rules apply in file order. They are compiled once into a decision table,
+ * so that a class is matched against all rules in a single pass: the literal
+ * class matchers share one Aho-Corasick automaton that reads the class name
+ * once, the package patterns are looked up once per enclosing package, and the
+ * thresholds of each counter are sorted so that one binary search finds every
+ * rule the coverage satisfies. Each step yields the set of rules it admits
+ * as a bit set; their intersection is the set of matching rules. Regexes run
+ * last, and only for rules that every other test has admitted.
+ */
+public class RecommendationRules {
+
+    private static final String DEFAULT_RULES = "recommendation-rules.txt";
+    private static final String SEPARATOR = " : ";
+    private static final String STOP = "stop";
+    private static final String ANY = "*";
+    private static final String PACKAGE_TREE = ".**";
+    private static final Pattern CONDITION =
+            Pattern.compile("(instruction|branch|line|method|complexity)(<|>=)([0-9]*\\.?[0-9]+)");
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([a-z.]+)}");
+    private static final Pattern PLACEHOLDER_NAME =
+            Pattern.compile("class|package|(instruction|branch|line|method|complexity)\\.(missed|covered|coverage)");
+    private static final CoverageTable.Counter[] COUNTERS = CoverageTable.Counter.values();
+
+    private final Rule[] rules;
+    private final int words;
+    private final long[] anyPackage;
+    private final Map<String, long[]> exactPackages = new HashMap<>();
+    private final Map<String, long[]> packageTrees = new HashMap<>();
+    private final long[] anyName;
+    private final NameAutomaton names;
+    private final Pattern[] regexes;
+    private final List<CounterTable> counterTables = new ArrayList<>();
+
+    /**
+     * A parsed rule
+     */
+    private static class Rule {
+        private String packagePattern;
+        private MatchKind matchKind;
+        private String matchValue;
+        private int regex = -1;
+        private final List<Condition> conditions = new ArrayList<>();
+        private boolean stop;
+        private final List<Message> messages = new ArrayList<>();
+    }
+
+    private enum MatchKind {
+        ANY(null), NAME("name:"), PREFIX("prefix:"), SUFFIX("suffix:"), CONTAINS("contains:"), REGEX("regex:");
+
+        private final String prefix;
+
+        MatchKind(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private static class Condition {
+        private final CoverageTable.Counter counter;
+        private final boolean below;
+        private final double value;
+
+        Condition(CoverageTable.Counter counter, boolean below, double value) {
+            this.counter = counter;
+            this.below = below;
+            this.value = value;
+        }
+    }
+
+    /**
+     * One recommendation, split into literal text and placeholders
+     */
+    private static class Message {
+        private final List<String> literals = new ArrayList<>();
+        private final List<String> placeholders = new ArrayList<>();
+
+        void appendTo(List<String> items, CodeCoverageAgent.CoverageData data) {
+            if (placeholders.isEmpty()) {
+                items.add(literals.get(0));
+                return;
+            }
+            StringBuilder text = new StringBuilder(literals.get(0));
+            for (int i = 0; i < placeholders.size(); i++) {
+                text.append(resolve(placeholders.get(i), data)).append(literals.get(i + 1));
+            }
+            items.add(text.toString());
+        }
+
+        private static String resolve(String placeholder, CodeCoverageAgent.CoverageData data) {
+            if (placeholder.equals("class")) {
+                return data.getClassName();
+            }
+            if (placeholder.equals("package")) {
+                return data.getPackageName();
+            }
+            int dot = placeholder.indexOf('.');
+            CoverageTable.Counter counter = counter(placeholder.substring(0, dot));
+            int missed = data.getMissed(counter);
+            int covered = data.getCovered(counter);
+            switch (placeholder.substring(dot + 1)) {
+                case "missed":
+                    return String.valueOf(missed);
+                case "covered":
+                    return String.valueOf(covered);
+                default:
+                    int total = missed + covered;
+                    return String.format("%.2f%%", total == 0 ? 0.0 : 100.0 * covered / total);
+            }
+        }
+    }
+
+    private RecommendationRules(List<Rule> parsed) {
+        rules = parsed.toArray(new Rule[0]);
+        words = Math.max((rules.length + 63) / 64, 1);
+        anyPackage = new long[words];
+        anyName = new long[words];
+
+        Map<String, Integer> patternIds = new LinkedHashMap<>();
+        List<long[]> patternRules = new ArrayList<>();
+        Map<String, Integer> regexIds = new LinkedHashMap<>();
+        for (int i = 0; i < rules.length; i++) {
+            Rule rule = rules[i];
+            if (rule.packagePattern.equals(ANY)) {
+                set(anyPackage, i);
+            } else if (rule.packagePattern.endsWith(PACKAGE_TREE)) {
+                String root = rule.packagePattern.substring(0, rule.packagePattern.length() - PACKAGE_TREE.length());
+                set(packageTrees.computeIfAbsent(root, key -> new long[words]), i);
+            } else {
+                set(exactPackages.computeIfAbsent(rule.packagePattern, key -> new long[words]), i);
+            }
+
+            if (rule.matchKind == MatchKind.ANY || rule.matchKind == MatchKind.REGEX) {
+                // Regexes are checked after the table has narrowed the candidates down
+                set(anyName, i);
+                if (rule.matchKind == MatchKind.REGEX) {
+                    rule.regex = regexIds.computeIfAbsent(rule.matchValue, key -> regexIds.size());
+                }
+            } else {
+                String pattern = NameAutomaton.pattern(rule.matchKind, rule.matchValue);
+                int id = patternIds.computeIfAbsent(pattern, key -> {
+                    patternRules.add(new long[words]);
+                    return patternRules.size() - 1;
+                });
+                set(patternRules.get(id), i);
+            }
+        }
+        names = new NameAutomaton(new ArrayList<>(patternIds.keySet()), patternRules);
+        regexes = new Pattern[regexIds.size()];
+        for (Map.Entry<String, Integer> regex : regexIds.entrySet()) {
+            regexes[regex.getValue()] = Pattern.compile(regex.getKey());
+        }
+        for (CoverageTable.Counter counter : COUNTERS) {
+            CounterTable table = CounterTable.build(counter, rules, words);
+            if (table != null) {
+                counterTables.add(table);
+            }
+        }
+    }
+
+    /**
+     * @return The rules shipped with the agent, which recommend tests by the
+     *         kind of class: response, application, controller or service
+     */
+    public static RecommendationRules defaults() {
+        return Defaults.RULES;
+    }
+
+    /**
+     * Holds the default rules, parsed on first use
+     */
+    private static class Defaults {
+        private static final RecommendationRules RULES = loadDefaults();
+
+        private static RecommendationRules loadDefaults() {
+            try (InputStream in = RecommendationRules.class.getResourceAsStream(DEFAULT_RULES)) {
+                if (in == null) {
+                    throw new IOException("Resource not found: " + DEFAULT_RULES);
+                }
+                return parse(DEFAULT_RULES, new InputStreamReader(in, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Read and compile a rules file
+     *
+     * @throws IOException if the file cannot be read or a rule is malformed
+     */
+    public static RecommendationRules load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(file.toString(), reader);
+        }
+    }
+
+    /**
+     * @param source Name of the rules file for error messages
+     */
+    static RecommendationRules parse(String source, Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<Rule> parsed = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            try {
+                parsed.add(parseRule(trimmed));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid rule at " + source + ":" + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return new RecommendationRules(parsed);
+    }
+
+    private static Rule parseRule(String line) {
+        int separator = line.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("expected '" + SEPARATOR.trim() + "' before the recommendations");
+        }
+        String[] tokens = line.substring(0, separator).trim().split("\\s+");
+        if (tokens.length < 2) {
+            throw new IllegalArgumentException("expected a package and a class matcher");
+        }
+        Rule rule = new Rule();
+        rule.packagePattern = parsePackagePattern(tokens[0]);
+        parseClassMatcher(rule, tokens[1]);
+        for (int i = 2; i < tokens.length; i++) {
+            if (tokens[i].equals(STOP)) {
+                rule.stop = true;
+                continue;
+            }
+            Matcher condition = CONDITION.matcher(tokens[i]);
+            if (!condition.matches()) {
+                throw new IllegalArgumentException("unknown condition '" + tokens[i] + "'");
+            }
+            double value = Double.parseDouble(condition.group(3));
+            if (value > 1.0) {
+                throw new IllegalArgumentException("ratio must be between 0.0 and 1.0 in '" + tokens[i] + "'");
+            }
+            rule.conditions.add(new Condition(counter(condition.group(1)), condition.group(2).equals("<"), value));
+        }
+        for (String text : line.substring(separator + SEPARATOR.length()).split("\\|")) {
+            if (!text.trim().isEmpty()) {
+                rule.messages.add(parseMessage(text.trim()));
+            }
+        }
+        if (rule.messages.isEmpty()) {
+            throw new IllegalArgumentException("expected at least one recommendation");
+        }
+        return rule;
+    }
+
+    private static String parsePackagePattern(String pattern) {
+        String name = pattern.endsWith(PACKAGE_TREE)
+                ? pattern.substring(0, pattern.length() - PACKAGE_TREE.length())
+                : pattern;
+        if (!pattern.equals(ANY) && !name.matches("[\\p{L}_$][\\p{L}\\p{N}_$]*(\\.[\\p{L}_$][\\p{L}\\p{N}_$]*)*")) {
+            throw new IllegalArgumentException("invalid package pattern '" + pattern + "'");
+        }
+        return pattern;
+    }
+
+    private static void parseClassMatcher(Rule rule, String matcher) {
+        if (matcher.equals(ANY)) {
+            rule.matchKind = MatchKind.ANY;
+            return;
+        }
+        for (MatchKind kind : MatchKind.values()) {
+            if (kind.prefix != null && matcher.startsWith(kind.prefix) && matcher.length() > kind.prefix.length()) {
+                rule.matchKind = kind;
+                rule.matchValue = matcher.substring(kind.prefix.length());
+                if (kind == MatchKind.REGEX) {
+                    try {
+                        Pattern.compile(rule.matchValue);
+                    } catch (PatternSyntaxException e) {
+                        throw new IllegalArgumentException("invalid regex '" + rule.matchValue + "'");
+                    }
+                }
+                return;
+            }
+        }
+        throw new IllegalArgumentException("unknown class matcher '" + matcher
+                + "'; expected *, name:, prefix:, suffix:, contains: or regex:");
+    }
+
+    private static Message parseMessage(String text) {
+        Message message = new Message();
+        Matcher placeholder = PLACEHOLDER.matcher(text);
+        int start = 0;
+        while (placeholder.find()) {
+            String name = placeholder.group(1);
+            if (!PLACEHOLDER_NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("unknown placeholder '{" + name + "}'");
+            }
+            message.literals.add(text.substring(start, placeholder.start()));
+            message.placeholders.add(name);
+            start = placeholder.end();
+        }
+        message.literals.add(text.substring(start));
+        return message;
+    }
+
+    private static CoverageTable.Counter counter(String name) {
+        return CoverageTable.Counter.valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * Generate the recommendations of all rules that apply to a class
+     */
+    public List<String> recommend(CodeCoverageAgent.CoverageData data) {
+        List<String> items = new ArrayList<>();
+        addRecommendations(data, items);
+        return items;
+    }
+
+    /**
+     * Append the recommendations of all rules that apply to a class, in rule order
+     */
+    public void addRecommendations(CodeCoverageAgent.CoverageData data, List<String> items) {
+        long[] matched = anyName.clone();
+        names.match(data.getClassName(), matched);
+        and(matched, packageRules(data.getPackageName()));
+        for (CounterTable table : counterTables) {
+            and(matched, table.select(data));
+        }
+
+        byte[] regexResults = null;
+        for (int word = 0; word < words; word++) {
+            long bits = matched[word];
+            while (bits != 0) {
+                Rule rule = rules[word * 64 + Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+                if (rule.regex >= 0) {
+                    if (regexResults == null) {
+                        regexResults = new byte[regexes.length];
+                    }
+                    if (regexResults[rule.regex] == 0) {
+                        regexResults[rule.regex] = (byte) (regexes[rule.regex].matcher(data.getClassName()).matches() ? 1 : -1);
+                    }
+                    if (regexResults[rule.regex] < 0) {
+                        continue;
+                    }
+                }
+                for (Message message : rule.messages) {
+                    message.appendTo(items, data);
+                }
+                if (rule.stop) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rules whose package pattern admits a package; one lookup per enclosing package
+     */
+    private long[] packageRules(String packageName) {
+        if (exactPackages.isEmpty() && packageTrees.isEmpty()) {
+            return anyPackage;
+        }
+        long[] admitted = anyPackage.clone();
+        or(admitted, exactPackages.get(packageName));
+        for (int end = packageName.indexOf('.'); end >= 0; end = packageName.indexOf('.', end + 1)) {
+            or(admitted, packageTrees.get(packageName.substring(0, end)));
+        }
+        or(admitted, packageTrees.get(packageName));
+        return admitted;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void and(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= other[i];
+        }
+    }
+
+    private static void or(long[] bits, long[] other) {
+        if (other != null) {
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] |= other[i];
+            }
+        }
+    }
+
+    /**
+     * The rules admitted by each coverage ratio of one counter
+     *
+     * With the distinct thresholds of the counter sorted, the number of
+     * thresholds at or below a ratio identifies the interval it falls into, and
+     * every interval has a precomputed set of the rules whose conditions hold.
+     */
+    private static class CounterTable {
+        private final CoverageTable.Counter counter;
+        private final double[] thresholds;
+        private final long[][] admitted;
+        private final long[] noItems;
+
+        private CounterTable(CoverageTable.Counter counter, double[] thresholds, long[][] admitted, long[] noItems) {
+            this.counter = counter;
+            this.thresholds = thresholds;
+            this.admitted = admitted;
+            this.noItems = noItems;
+        }
+
+        /**
+         * @return The table, or null if no rule has a condition on the counter
+         */
+        static CounterTable build(CoverageTable.Counter counter, Rule[] rules, int words) {
+            TreeSet<Double> values = new TreeSet<>();
+            for (Rule rule : rules) {
+                for (Condition condition : rule.conditions) {
+                    if (condition.counter == counter) {
+                        values.add(condition.value);
+                    }
+                }
+            }
+            if (values.isEmpty()) {
+                return null;
+            }
+            double[] thresholds = values.stream().mapToDouble(Double::doubleValue).toArray();
+            long[][] admitted = new long[thresholds.length + 1][words];
+            long[] noItems = new long[words];
+            for (int i = 0; i < rules.length; i++) {
+                boolean constrained = false;
+                for (int interval = 0; interval <= thresholds.length; interval++) {
+                    boolean holds = true;
+                    for (Condition condition : rules[i].conditions) {
+                        if (condition.counter == counter) {
+                            constrained = true;
+                            // Thresholds at or below the ratio are exactly those below the interval
+                            boolean reached = Arrays.binarySearch(thresholds, condition.value) < interval;
+                            holds &= condition.below != reached;
+                        }
+                    }
+                    if (holds) {
+                        set(admitted[interval], i);
+                    }
+                }
+                if (!constrained) {
+                    set(noItems, i);
+                }
+            }
+            return new CounterTable(counter, thresholds, admitted, noItems);
+        }
+
+        long[] select(CodeCoverageAgent.CoverageData data) {
+            int missed = data.getMissed(counter);
+            int covered = data.getCovered(counter);
+            if (missed + covered == 0) {
+                return noItems;
+            }
+            double ratio = (double) covered / (missed + covered);
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (thresholds[mid] <= ratio) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return admitted[low];
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton over all literal class matchers
+     *
+     * The class name is read between a start and an end marker, so that a
+     * prefix is a pattern that begins with the start marker, a suffix one
+     * that ends with the end marker, and a whole name one with both. Characters
+     * that occur in no pattern share a single input class.
+     */
+    private static class NameAutomaton {
+        private static final char START = '\u0002';
+        private static final char END = '\u0003';
+        private static final int ASCII = 128;
+
+        private final int[] asciiClasses = new int[ASCII];
+        private final Map<Character, Integer> otherClasses = new HashMap<>();
+        private final int alphabet;
+        private final int[] next;
+        private final long[][] outputs;
+
+        static String pattern(MatchKind kind, String value) {
+            switch (kind) {
+                case NAME:
+                    return START + value + END;
+                case PREFIX:
+                    return START + value;
+                case SUFFIX:
+                    return value + END;
+                default:
+                    return value;
+            }
+        }
+
+        NameAutomaton(List<String> patterns, List<long[]> patternRules) {
+            int classes = 1;
+            for (String pattern : patterns) {
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = pattern.charAt(i);
+                    if (inputClass(c) == 0) {
+                        if (c < ASCII) {
+                            asciiClasses[c] = classes++;
+                        } else {
+                            otherClasses.put(c, classes++);
+                        }
+                    }
+                }
+            }
+            alphabet = classes;
+
+            // Trie of all patterns
+            List<int[]> trie = new ArrayList<>();
+            List<long[]> trieOutputs = new ArrayList<>();
+            trie.add(newRow());
+            trieOutputs.add(null);
+            for (int p = 0; p < patterns.size(); p++) {
+                String pattern = patterns.get(p);
+                int state = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    int input = inputClass(pattern.charAt(i));
+                    if (trie.get(state)[input] < 0) {
+                        trie.get(state)[input] = trie.size();
+                        trie.add(newRow());
+                        trieOutputs.add(null);
+                    }
+                    state = trie.get(state)[input];
+                }
+                trieOutputs.set(state, patternRules.get(p).clone());
+            }
+
+            // Breadth-first, so the failure state of every state is complete before the state itself
+            int states = trie.size();
+            next = new int[states * alphabet];
+            outputs = trieOutputs.toArray(new long[0][]);
+            int[] failure = new int[states];
+            int[] queue = new int[states];
+            int head = 0;
+            int tail = 0;
+            for (int input = 0; input < alphabet; input++) {
+                int child = trie.get(0)[input];
+                next[input] = Math.max(child, 0);
+                if (child > 0) {
+                    queue[tail++] = child;
+                }
+            }
+            while (head < tail) {
+                int state = queue[head++];
+                long[] inherited = outputs[failure[state]];
+                if (inherited != null) {
+                    if (outputs[state] == null) {
+                        outputs[state] = inherited;
+                    } else {
+                        outputs[state] = outputs[state].clone();
+                        or(outputs[state], inherited);
+                    }
+                }
+                for (int input = 0; input < alphabet; input++) {
+                    int child = trie.get(state)[input];
+                    int fallback = next[failure[state] * alphabet + input];
+                    if (child < 0) {
+                        next[state * alphabet + input] = fallback;
+                    } else {
+                        next[state * alphabet + input] = child;
+                        failure[child] = fallback;
+                        queue[tail++] = child;
+                    }
+                }
+            }
+        }
+
+        private int[] newRow() {
+            int[] row = new int[alphabet];
+            Arrays.fill(row, -1);
+            return row;
+        }
+
+        private int inputClass(char c) {
+            if (c < ASCII) {
+                return asciiClasses[c];
+            }
+            Integer input = otherClasses.get(c);
+            return input == null ? 0 : input;
+        }
+
+        /**
+         * Add the rules of all patterns that occur in the class name to a bit set
+         */
+        void match(String className, long[] rules) {
+            int state = step(0, START, rules);
+            for (int i = 0; i < className.length(); i++) {
+                state = step(state, className.charAt(i), rules);
+            }
+            step(state, END, rules);
+        }
+
+        private int step(int state, char c, long[] rules) {
+            int target = next[state * alphabet + inputClass(c)];
+            or(rules, outputs[target]);
+            return target;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.calculator;
+
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Output formats supported by {@link CodeCoverageAgent}
+ */
+public enum ReportFormat {
+    TEXT,
+    JSON,
+    JUNIT,
+    SARIF;
+
+    /**
+     * Create a report writer for this format
+     *
+     * @param out Destination of the report; flushed, but not closed, by the writer
+     */
+    public CoverageReportWriter newWriter(Writer out) {
+        switch (this) {
+            case JSON:
+                return new JsonReportWriter(out);
+            case JUNIT:
+                return new JUnitXmlReportWriter(out);
+            case SARIF:
+                return new SarifReportWriter(out);
+            default:
+                return new TextReportWriter(out);
+        }
+    }
+
+    /**
+     * Look up a format by name, ignoring case
+     *
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static ReportFormat fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.calculator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the analysis as a SARIF 2.1.0 log, with one result per class below
+ * the threshold.
+ *
+ * When line-level detail is available the result points at the source file
+ * and the first uncovered line range; otherwise it carries only the class name
+ * as a logical location. Source files are given relative to the project root,
+ * including the source root (e.g. {@code src/main/java/com/example/Foo.java}),
+ * against the {@code %SRCROOT%} base that code scanning tools resolve to the
+ * repository root.
+ */
+public class SarifReportWriter implements CoverageReportWriter {
+
+    static final String RULE_ID = "coverage/below-threshold";
+    static final String SOURCE_ROOT_BASE_ID = "%SRCROOT%";
+    private static final String DEFAULT_SOURCE_ROOT = "src/main/java";
+
+    private final Writer out;
+    private final Path projectRoot;
+    private final String sourceRoot;
+    private final List<String> warnings = new ArrayList<>();
+    private boolean firstResult = true;
+
+    /**
+     * Write source locations for the standard Gradle layout, taking the
+     * working directory as the project root
+     */
+    public SarifReportWriter(Writer out) {
+        this(out, Paths.get(""), DEFAULT_SOURCE_ROOT);
+    }
+
+    /**
+     * @param projectRoot Directory that {@code %SRCROOT%} stands for
+     * @param sourceRoot Directory of the main sources relative to the project root; may be empty
+     */
+    public SarifReportWriter(Writer out, Path projectRoot, String sourceRoot) {
+        this.out = out;
+        this.projectRoot = projectRoot.toAbsolutePath();
+        this.sourceRoot = sourceRoot.isEmpty() || sourceRoot.endsWith("/") ? sourceRoot : sourceRoot + "/";
+    }
+
+    @Override
+    public void begin(double coverageThreshold) throws IOException {
+        out.write("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\",\"runs\":[{");
+        out.write("\"tool\":{\"driver\":{\"name\":\"CodeCoverageAgent\",\"rules\":[{\"id\":\"" + RULE_ID + "\","
+                + "\"shortDescription\":{\"text\":\"Class coverage is below the threshold\"},"
+                + "\"properties\":{\"coverageThreshold\":" + JsonReportWriter.number(coverageThreshold) + "}}]}},");
+        out.write("\"results\":[");
+    }
+
+    @Override
+    public void warning(String message) {
+        warnings.add(message);
+    }
+
+    @Override
+    public void classResult(CodeCoverageAgent.CoverageData data, ClassCoverageDetail detail,
+                            boolean belowThreshold, List<String> recommendations) throws IOException {
+        if (!belowThreshold) {
+            return;
+        }
+        if (!firstResult) {
+            out.write(",");
+        }
+        firstResult = false;
+
+        StringBuilder message = new StringBuilder(String.format("%s has %.2f%% instruction coverage",
+                data.getClassName(), data.getInstructionCoverage() * 100));
+        for (String recommendation : recommendations) {
+            message.append("\n- ").append(recommendation);
+        }
+
+        out.write("\n{\"ruleId\":\"" + RULE_ID + "\",\"level\":\"warning\",\"message\":{\"text\":"
+                + JsonReportWriter.string(message.toString()) + "},\"locations\":[{");
+        if (detail != null && detail.getSourceFileName() != null) {
+            String packagePath = detail.getPackageName().isEmpty() ? "" : detail.getPackageName() + "/";
+            out.write("\"physicalLocation\":{\"artifactLocation\":{\"uri\":"
+                    + JsonReportWriter.string(sourceRoot + packagePath + detail.getSourceFileName())
+                    + ",\"uriBaseId\":\"" + SOURCE_ROOT_BASE_ID + "\"}");
+            if (!detail.getUncoveredLines().isEmpty()) {
+                ClassCoverageDetail.LineRange range = detail.getUncoveredLines().get(0);
+                out.write(",\"region\":{\"startLine\":" + range.getStart() + ",\"endLine\":" + range.getEnd() + "}");
+            }
+            out.write("},");
+        }
+        out.write("\"logicalLocations\":[{\"fullyQualifiedName\":" + JsonReportWriter.string(data.getQualifiedName())
+                + ",\"kind\":\"type\"}]}],\"properties\":{\"instructionCoverage\":"
+                + JsonReportWriter.number(data.getInstructionCoverage()) + "}}");
+    }
+
+    @Override
+    public boolean writesClassesMeetingThreshold() {
+        return false;
+    }
+
+    @Override
+    public void changes(CoverageDiff diff) {
+        // Changes against the baseline are not part of the SARIF log
+    }
+
+    @Override
+    public void end(Summary summary) throws IOException {
+        out.write("\n],\"invocations\":[{\"executionSuccessful\":true,\"toolExecutionNotifications\":[");
+        for (int i = 0; i < warnings.size(); i++) {
+            if (i > 0) {
+                out.write(",");
+            }
+            out.write("{\"level\":\"warning\",\"message\":{\"text\":" + JsonReportWriter.string(warnings.get(i)) + "}}");
+        }
+        out.write("]}],\"originalUriBaseIds\":{\"" + SOURCE_ROOT_BASE_ID + "\":{\"uri\":"
+                + JsonReportWriter.string(projectRoot.toUri().toString()) + "}}");
+        out.write(",\"properties\":{\"overallCoverage\":" + JsonReportWriter.number(summary.getOverallCoverage())
+                + ",\"totalClasses\":" + summary.getTotalClasses()
+                + ",\"classesBelowThreshold\":" + summary.getClassesBelowThreshold()
+                + ",\"classesNotShown\":" + summary.getClassesNotShown()
+                + ",\"packagesBelowThreshold\":" + summary.getPackagesBelowThreshold().size() + "}}]}\n");
+        out.flush();
+    }
+}
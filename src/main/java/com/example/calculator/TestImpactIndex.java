@@ -0,0 +1,345 @@
+package com.example.calculator;
+
+import org.jacoco.core.data.ExecutionDataReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Reverse index from production classes to the test classes that execute
+ * them, used to run only the tests affected by a change.
+ *
+ * The index is read from JaCoCo execution data holding one session per test
+ * class, as recorded by the {@code recordTestImpact} Gradle task: the session
+ * id is the test class name, every class with at least one executed probe in
+ * that session is covered by it, and the session's start and dump times give
+ * the test class's duration. Nested classes are indexed under their top-level
+ * class, since they change together with its source file.
+ */
+public class TestImpactIndex {
+
+    private static final String OUTPUT_OPTION = "--output=";
+    private static final String GIT_DIFF_OPTION = "--git-diff=";
+    private static final String MAIN_SOURCES = "src/main/java/";
+    private static final String TEST_SOURCES = "src/test/java/";
+
+    /**
+     * The test classes to run for a set of changes
+     */
+    public static class Selection {
+        private final List<String> tests;
+        private final List<String> uncoveredClasses;
+        private final boolean fullRun;
+        private final long selectedMillis;
+        private final long totalMillis;
+        private final int totalTests;
+
+        public Selection(List<String> tests, List<String> uncoveredClasses, boolean fullRun,
+                         long selectedMillis, long totalMillis, int totalTests) {
+            this.tests = tests;
+            this.uncoveredClasses = uncoveredClasses;
+            this.fullRun = fullRun;
+            this.selectedMillis = selectedMillis;
+            this.totalMillis = totalMillis;
+            this.totalTests = totalTests;
+        }
+
+        /**
+         * @return Fully qualified names of the test classes to run, sorted
+         */
+        public List<String> getTests() {
+            return tests;
+        }
+
+        /**
+         * @return Changed production classes that no recorded test executes
+         */
+        public List<String> getUncoveredClasses() {
+            return uncoveredClasses;
+        }
+
+        /**
+         * @return Whether a change could not be mapped to recorded tests, so every test was selected
+         */
+        public boolean isFullRun() {
+            return fullRun;
+        }
+
+        public int getTotalTests() {
+            return totalTests;
+        }
+
+        /**
+         * @return Recorded run time of the selected test classes, in milliseconds
+         */
+        public long getSelectedMillis() {
+            return selectedMillis;
+        }
+
+        /**
+         * @return Recorded run time of all test classes, in milliseconds
+         */
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getSavedMillis() {
+            return totalMillis - selectedMillis;
+        }
+    }
+
+    private final Map<String, Set<String>> testsByClass = new HashMap<>();
+    private final Map<String, Long> durations = new TreeMap<>();
+
+    /**
+     * Read per-test-class sessions from an execution data file, or from every
+     * {@code .exec} file in a directory
+     *
+     * @param sessions Execution data file or directory
+     * @return The index
+     * @throws IOException if the execution data cannot be read
+     */
+    public static TestImpactIndex read(Path sessions) throws IOException {
+        TestImpactIndex index = new TestImpactIndex();
+        List<Path> files;
+        if (Files.isDirectory(sessions)) {
+            try (Stream<Path> listing = Files.list(sessions)) {
+                files = listing.filter(file -> file.toString().endsWith(".exec")).sorted().toList();
+            }
+        } else {
+            files = List.of(sessions);
+        }
+        for (Path file : files) {
+            index.readSessions(file);
+        }
+        return index;
+    }
+
+    private void readSessions(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            ExecutionDataReader reader = new ExecutionDataReader(in);
+            String[] currentTest = new String[1];
+            reader.setSessionInfoVisitor(info -> {
+                currentTest[0] = info.getId();
+                durations.merge(info.getId(), Math.max(info.getDumpTimeStamp() - info.getStartTimeStamp(), 0L), Long::sum);
+            });
+            reader.setExecutionDataVisitor(data -> {
+                if (currentTest[0] != null && data.hasHits()) {
+                    testsByClass.computeIfAbsent(topLevelClassName(data.getName()), name -> new TreeSet<>())
+                            .add(currentTest[0]);
+                }
+            });
+            reader.read();
+        }
+    }
+
+    /**
+     * @return Every recorded test class, sorted
+     */
+    public Set<String> getTests() {
+        return Collections.unmodifiableSet(durations.keySet());
+    }
+
+    /**
+     * @param className Fully qualified class name, in dotted or VM notation
+     * @return Test classes that execute the class or any class nested in it, sorted
+     */
+    public Set<String> getTestsCovering(String className) {
+        Set<String> tests = testsByClass.get(topLevelClassName(className));
+        return tests == null ? Set.of() : Collections.unmodifiableSet(tests);
+    }
+
+    /**
+     * Select the test classes affected by a set of changes
+     *
+     * Changes are fully qualified class names or source file paths. Changed
+     * test classes are selected themselves; any changed class, production or
+     * test helper, selects every test that executes it. A changed test source
+     * that no recorded test executes and that has no session of its own, such
+     * as a new test or a helper that has not been recorded yet, may affect
+     * any test, so it selects all of them. Documentation ({@code .md})
+     * changes select nothing. Any other file, such as a build script or
+     * resource, may affect every test, so it selects all of them.
+     *
+     * @param changes Changed classes or files
+     * @return The tests to run
+     */
+    public Selection select(Collection<String> changes) {
+        Set<String> tests = new TreeSet<>();
+        Set<String> uncovered = new TreeSet<>();
+        boolean fullRun = false;
+        for (String change : changes) {
+            String trimmed = change.trim();
+            if (trimmed.isEmpty() || trimmed.endsWith(".md")) {
+                continue;
+            }
+            String className = toClassName(trimmed);
+            if (className == null) {
+                fullRun = true;
+                continue;
+            }
+            Set<String> covering = getTestsCovering(className);
+            tests.addAll(covering);
+            if (durations.containsKey(className)) {
+                tests.add(className);
+            } else if (trimmed.replace('\\', '/').contains(TEST_SOURCES)) {
+                if (covering.isEmpty()) {
+                    // Unrecorded test source; select it in case it is a new test
+                    tests.add(className);
+                    fullRun = true;
+                }
+            } else if (covering.isEmpty()) {
+                uncovered.add(className);
+            }
+        }
+        if (fullRun) {
+            tests.addAll(durations.keySet());
+        }
+
+        long selectedMillis = 0;
+        long totalMillis = 0;
+        for (Map.Entry<String, Long> entry : durations.entrySet()) {
+            totalMillis += entry.getValue();
+            if (tests.contains(entry.getKey())) {
+                selectedMillis += entry.getValue();
+            }
+        }
+        return new Selection(List.copyOf(tests), List.copyOf(uncovered), fullRun,
+                selectedMillis, totalMillis, durations.size());
+    }
+
+    /**
+     * Turn a changed class name or Java source path into a fully qualified class name
+     *
+     * @return Class name, or null if the change is a file other than Java source
+     */
+    static String toClassName(String change) {
+        String path = change.replace('\\', '/');
+        if (!path.endsWith(".java")) {
+            return isQualifiedClassName(path) ? topLevelClassName(path) : null;
+        }
+        path = path.substring(0, path.length() - ".java".length());
+        for (String root : List.of(MAIN_SOURCES, TEST_SOURCES)) {
+            int start = path.indexOf(root);
+            if (start >= 0) {
+                return path.substring(start + root.length()).replace('/', '.');
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a change names a class in a package, e.g. {@code com.example.Foo},
+     * rather than a file such as {@code build.gradle}
+     */
+    private static boolean isQualifiedClassName(String change) {
+        String[] segments = change.split("\\.", -1);
+        if (segments.length < 2) {
+            return false;
+        }
+        for (String segment : segments) {
+            if (segment.isEmpty() || !Character.isJavaIdentifierStart(segment.charAt(0))) {
+                return false;
+            }
+            for (int i = 1; i < segment.length(); i++) {
+                if (!Character.isJavaIdentifierPart(segment.charAt(i))) {
+                    return false;
+                }
+            }
+        }
+        return Character.isUpperCase(segments[segments.length - 1].charAt(0));
+    }
+
+    private static String topLevelClassName(String className) {
+        String name = className.replace('/', '.');
+        int nested = name.indexOf('$');
+        return nested < 0 ? name : name.substring(0, nested);
+    }
+
+    private static List<String> gitDiff(String ref) throws IOException {
+        Process process = new ProcessBuilder("git", "diff", "--name-only", ref)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        List<String> files = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                files.add(line);
+            }
+        }
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("git diff --name-only " + ref + " failed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running git diff", e);
+        }
+        return files;
+    }
+
+    /**
+     * Print the test classes affected by a set of changes and the recorded
+     * time saved by running only those
+     *
+     * Usage: {@code <sessions> [--output=<file>] [--git-diff=<ref>] [changed classes or files...]}
+     */
+    public static void main(String[] args) {
+        Path outputFile = null;
+        String gitRef = null;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(OUTPUT_OPTION)) {
+                outputFile = Paths.get(arg.substring(OUTPUT_OPTION.length()));
+            } else if (arg.startsWith(GIT_DIFF_OPTION)) {
+                gitRef = arg.substring(GIT_DIFF_OPTION.length());
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.isEmpty()) {
+            System.err.println("Usage: TestImpactIndex <sessions> [--output=<file>] [--git-diff=<ref>] "
+                    + "[changed classes or files...]");
+            System.exit(1);
+            return;
+        }
+
+        try {
+            TestImpactIndex index = read(Paths.get(positional.get(0)));
+            List<String> changes = new ArrayList<>(positional.subList(1, positional.size()));
+            if (gitRef != null) {
+                changes.addAll(gitDiff(gitRef));
+            }
+            Selection selection = index.select(changes);
+
+            if (outputFile != null) {
+                Path parent = outputFile.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                Files.write(outputFile, selection.getTests(), StandardCharsets.UTF_8);
+            } else {
+                selection.getTests().forEach(System.out::println);
+            }
+            for (String className : selection.getUncoveredClasses()) {
+                System.err.println("Warning: No recorded test executes " + className);
+            }
+            System.err.println(String.format("Selected %d of %d test classes%s; estimated time saved %.1fs of %.1fs (%.0f%%)",
+                    selection.getTests().size(), selection.getTotalTests(),
+                    selection.isFullRun() ? " (change not mapped to recorded tests, running all)" : "",
+                    selection.getSavedMillis() / 1000.0, selection.getTotalMillis() / 1000.0,
+                    selection.getTotalMillis() == 0 ? 0.0 : 100.0 * selection.getSavedMillis() / selection.getTotalMillis()));
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
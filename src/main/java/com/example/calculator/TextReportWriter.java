@@ -0,0 +1,108 @@
+package com.example.calculator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes the human-readable report printed by {@link CodeCoverageAgent}
+ *
+ * The report is written while the input is read, so the overall coverage,
+ * which is only known once every class has been seen, follows the class list
+ * instead of preceding the threshold line.
+ */
+public class TextReportWriter implements CoverageReportWriter {
+
+    private final Writer out;
+    private boolean anyBelowThreshold;
+    private boolean changesReported;
+    private CoverageDiff diff;
+
+    public TextReportWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(double coverageThreshold) throws IOException {
+        out.write("=== Code Coverage Analysis Report ===\n\n");
+        out.write("Coverage Threshold: " + String.format("%.2f%%", coverageThreshold * 100) + "\n\n");
+    }
+
+    @Override
+    public void warning(String message) throws IOException {
+        out.write("Warning: " + message + "\n\n");
+    }
+
+    @Override
+    public void classResult(CodeCoverageAgent.CoverageData data, ClassCoverageDetail detail,
+                            boolean belowThreshold, List<String> recommendations) throws IOException {
+        if (!belowThreshold) {
+            return;
+        }
+        if (!anyBelowThreshold) {
+            anyBelowThreshold = true;
+            out.write("Classes below coverage threshold:\n\n");
+        }
+        out.write(CodeCoverageAgent.formatRecommendation(data, recommendations));
+        out.write("\n");
+    }
+
+    @Override
+    public boolean writesClassesMeetingThreshold() {
+        return false;
+    }
+
+    @Override
+    public void changes(CoverageDiff diff) {
+        // Printed after the summary
+        this.changesReported = true;
+        this.diff = diff;
+    }
+
+    @Override
+    public void end(Summary summary) throws IOException {
+        if (!anyBelowThreshold) {
+            out.write("✓ All classes meet the coverage threshold!\n");
+        } else if (summary.getClassesNotShown() > 0) {
+            out.write("... and " + summary.getClassesNotShown() + " more class(es) below threshold\n");
+        }
+
+        List<PackageCoverageTree.Node> packagesBelowThreshold = summary.getPackagesBelowThreshold();
+        if (!packagesBelowThreshold.isEmpty()) {
+            out.write("\nPackages below coverage threshold:\n");
+            for (PackageCoverageTree.Node node : packagesBelowThreshold) {
+                out.write("- " + packageName(node) + " - Coverage: "
+                        + String.format("%.2f%%", node.getInstructionCoverage() * 100)
+                        + " (" + node.getClassCount() + " classes)\n");
+            }
+        }
+
+        out.write("\nOverall Coverage: " + String.format("%.2f%%", summary.getOverallCoverage() * 100) + "\n");
+        out.write("\nSummary:\n");
+        out.write("- Total classes: " + summary.getTotalClasses() + "\n");
+        out.write("- Classes below threshold: " + summary.getClassesBelowThreshold() + "\n");
+        out.write("- Classes meeting threshold: " + summary.getClassesMeetingThreshold() + "\n");
+        if (summary.getPackages() != null) {
+            out.write("- Packages below threshold: " + packagesBelowThreshold.size() + "\n");
+        }
+        AnalysisProfile profile = summary.getProfile();
+        if (profile != null) {
+            out.write("- Throughput: " + String.format("%.0f rows/s, %.2f MB/s",
+                    profile.getRowsPerSecond(), profile.getMegabytesPerSecond()) + "\n");
+        }
+
+        if (changesReported) {
+            out.write("\nChanges since last run:\n");
+            if (diff == null) {
+                out.write("- No baseline found; this run is stored as the baseline\n");
+            } else {
+                diff.appendTo(out);
+            }
+        }
+        out.flush();
+    }
+
+    static String packageName(PackageCoverageTree.Node node) {
+        return node.getName().isEmpty() ? "(default package)" : node.getName();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.calculator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the K first elements of a stream under a given order, using a bounded
+ * heap instead of collecting and sorting the whole stream.
+ *
+ * Memory use is O(K) and each offer costs O(log K), so selecting the worst
+ * offenders of a report with millions of classes never holds more than K of
+ * them.
+ *
+ * @param <T> Element type
+ */
+public class TopKSelector<T> {
+
+    private final int limit;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+    private long offered;
+
+    /**
+     * @param limit Number of elements to keep; must be positive
+     * @param order Order in which the first elements are kept
+     */
+    public TopKSelector(int limit, Comparator<? super T> order) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        this.order = order;
+        // The head of the heap is the last of the kept elements, i.e. the first to be evicted
+        this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, order.reversed());
+    }
+
+    /**
+     * Offer an element to the selection
+     */
+    public void offer(T element) {
+        offered++;
+        if (heap.size() < limit) {
+            heap.add(element);
+        } else if (order.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * @return Number of elements offered so far
+     */
+    public long getOffered() {
+        return offered;
+    }
+
+    /**
+     * @return Number of offered elements that were not kept
+     */
+    public long getDropped() {
+        return offered - heap.size();
+    }
+
+    /**
+     * @return The kept elements, first element first
+     */
+    public List<T> result() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+}
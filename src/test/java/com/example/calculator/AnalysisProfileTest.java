@@ -0,0 +1,83 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for AnalysisProfile
+ */
+class AnalysisProfileTest {
+
+    private static final int MEGABYTE = 1024 * 1024;
+
+    private static byte[] sink;
+
+    @Test
+    void testNestedPhasesAreChargedExclusively() {
+        AnalysisProfile profile = new AnalysisProfile(1);
+        profile.enter(AnalysisProfile.Phase.PARSE);
+        profile.enter(AnalysisProfile.Phase.RECOMMEND);
+        sink = new byte[4 * MEGABYTE];
+        profile.exit();
+        profile.exit();
+        profile.finish();
+
+        long phases = 0;
+        for (AnalysisProfile.Phase phase : AnalysisProfile.Phase.values()) {
+            assertTrue(profile.getNanos(phase) >= 0);
+            phases += profile.getNanos(phase);
+        }
+        assertTrue(phases <= profile.getElapsedNanos());
+        if (profile.getAllocatedBytes(AnalysisProfile.Phase.RECOMMEND) >= 0) {
+            assertTrue(profile.getAllocatedBytes(AnalysisProfile.Phase.RECOMMEND) >= 4 * MEGABYTE);
+            assertTrue(profile.getAllocatedBytes(AnalysisProfile.Phase.PARSE) < MEGABYTE);
+        }
+    }
+
+    @Test
+    void testUnsampledRowsAreEstimated() {
+        AnalysisProfile profile = new AnalysisProfile(2);
+        profile.enter(AnalysisProfile.Phase.PARSE);
+        for (int row = 0; row < 4; row++) {
+            profile.startRow();
+            profile.enterRow(AnalysisProfile.Phase.REPORT);
+            sink = new byte[MEGABYTE];
+            profile.exitRow();
+        }
+        profile.exit();
+        profile.finish();
+
+        assertEquals(4, profile.getRows());
+        if (profile.getAllocatedBytes(AnalysisProfile.Phase.REPORT) >= 0) {
+            // Two sampled rows stand in for all four
+            assertTrue(profile.getAllocatedBytes(AnalysisProfile.Phase.REPORT) >= 4L * MEGABYTE);
+            assertTrue(profile.getAllocatedBytes(AnalysisProfile.Phase.PARSE) < MEGABYTE);
+        }
+    }
+
+    @Test
+    void testThroughputAndFormat() {
+        AnalysisProfile profile = new AnalysisProfile();
+        profile.enter(AnalysisProfile.Phase.PARSE);
+        for (int row = 0; row < 100; row++) {
+            profile.startRow();
+        }
+        profile.addBytes(2 * MEGABYTE);
+        profile.finish();
+
+        assertEquals(100, profile.getRows());
+        assertEquals(2 * MEGABYTE, profile.getBytes());
+        assertTrue(profile.getRowsPerSecond() > 0);
+        assertTrue(profile.getMegabytesPerSecond() > 0);
+        long elapsed = profile.getElapsedNanos();
+        assertEquals(elapsed, profile.getElapsedNanos());
+
+        String table = profile.format();
+        assertTrue(table.contains("read input"));
+        assertTrue(table.contains("check threshold"));
+        assertTrue(table.contains("recommend"));
+        assertTrue(table.contains("write report"));
+        assertTrue(table.contains("Rows: 100"));
+    }
+}
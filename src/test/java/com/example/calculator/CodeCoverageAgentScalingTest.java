@@ -0,0 +1,308 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Scaling tests for CodeCoverageAgent on large synthetic reports
+ *
+ * The large-report tests are tagged {@code scaling} and run by the
+ * {@code scalingTest} Gradle task, which {@code check} depends on. The
+ * report size defaults to {@value #DEFAULT_CLASSES} classes and is set with
+ * the {@code coverage.scaling.classes} system property; XML reports get a
+ * quarter of that, since they are many times larger. The throughput floors
+ * come from the {@code coverage.scaling.floor.*} system properties, which
+ * the Gradle task sets to conservative defaults; heap ceilings are checked
+ * in a separate JVM with a small {@code -Xmx}.
+ */
+class CodeCoverageAgentScalingTest {
+
+    private static final String SCALING = "scaling";
+    private static final int DEFAULT_CLASSES = 50_000;
+    // Package rollups grow with the number of packages, not classes
+    private static final int MAX_PACKAGES = 25_000;
+    private static final long SEED = 20240101L;
+    private static final double THRESHOLD = 0.80;
+
+    private static final String CSV_PARSE_FLOOR = "coverage.scaling.floor.csvParse";
+    private static final String CSV_ANALYSIS_FLOOR = "coverage.scaling.floor.csvAnalysis";
+    private static final String XML_ANALYSIS_FLOOR = "coverage.scaling.floor.xmlAnalysis";
+    private static final String STREAMING_HEAP = "-Xmx64m";
+    private static final long TABLE_BYTES_PER_CLASS = 256;
+    // XML reports take about 750 bytes per class
+    private static final int XML_CLASSES_DIVISOR = 4;
+    private static final int ATTEMPTS = 3;
+
+    private static int classes() {
+        return Integer.getInteger("coverage.scaling.classes", DEFAULT_CLASSES);
+    }
+
+    private static CoverageReportGenerator generator() {
+        return generator(classes());
+    }
+
+    private static CoverageReportGenerator xmlGenerator() {
+        return generator(Math.max(classes() / XML_CLASSES_DIVISOR, 1));
+    }
+
+    private static CoverageReportGenerator generator(int classes) {
+        return new CoverageReportGenerator(SEED)
+                .classes(classes)
+                .packageDepth(4)
+                .classesPerPackage(Math.max(classes / MAX_PACKAGES, 40))
+                .quotedNameRatio(0.01)
+                .malformedRowRatio(0.001)
+                .threshold(THRESHOLD);
+    }
+
+    /**
+     * Passes the report through to the text writer, discarding the output, and keeps the summary
+     */
+    private static class SummaryCapture implements CoverageReportWriter {
+        private final CoverageReportWriter delegate = new TextReportWriter(Writer.nullWriter());
+        private Summary summary;
+
+        @Override
+        public void begin(double coverageThreshold) throws IOException {
+            delegate.begin(coverageThreshold);
+        }
+
+        @Override
+        public void warning(String message) throws IOException {
+            delegate.warning(message);
+        }
+
+        @Override
+        public void classResult(CodeCoverageAgent.CoverageData data, ClassCoverageDetail detail,
+                                boolean belowThreshold, List<String> recommendations) throws IOException {
+            delegate.classResult(data, detail, belowThreshold, recommendations);
+        }
+
+        @Override
+        public void changes(CoverageDiff diff) throws IOException {
+            delegate.changes(diff);
+        }
+
+        @Override
+        public void end(Summary summary) throws IOException {
+            this.summary = summary;
+            delegate.end(summary);
+        }
+    }
+
+    /**
+     * Analyze a report a few times and return the fastest run, so JIT warm-up
+     * and a single slow run on a busy machine do not fail the floor
+     */
+    private static AnalysisProfile analyzeBest(Path report, CoverageReportGenerator.Expected expected)
+            throws IOException {
+        AnalysisProfile best = null;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            CodeCoverageAgent agent = new CodeCoverageAgent(THRESHOLD);
+            SummaryCapture capture = new SummaryCapture();
+            agent.analyzeAndWrite(report.toString(), List.of(), capture);
+            assertSummary(expected, capture.summary);
+            AnalysisProfile profile = agent.getLastProfile();
+            if (best == null || profile.getRowsPerSecond() > best.getRowsPerSecond()) {
+                best = profile;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fail if the throughput is below the floor set with a system property
+     */
+    private static void checkThroughput(String floorProperty, String measurement, double rowsPerSecond,
+                                        String details) {
+        String floor = System.getProperty(floorProperty);
+        assertNotNull(floor, "No throughput floor set with " + floorProperty);
+        double minimum = Double.parseDouble(floor);
+        assertTrue(rowsPerSecond >= minimum, String.format("%s ran at %.0f rows/s, below the floor of %.0f%n%s",
+                measurement, rowsPerSecond, minimum, details));
+    }
+
+    private static void assertSummary(CoverageReportGenerator.Expected expected, CoverageReportWriter.Summary summary) {
+        assertEquals(expected.getClasses(), summary.getTotalClasses());
+        assertEquals(expected.getBelowThreshold(), summary.getClassesBelowThreshold());
+        assertEquals(expected.getOverallCoverage(), summary.getOverallCoverage(), 1e-9);
+    }
+
+    @Test
+    void testGeneratorIsDeterministic(@TempDir Path tempDir) throws IOException {
+        CoverageReportGenerator generator = new CoverageReportGenerator(SEED)
+                .classes(1_000).quotedNameRatio(0.1).malformedRowRatio(0.05);
+        generator.writeCsv(tempDir.resolve("a.csv"));
+        generator.writeCsv(tempDir.resolve("b.csv"));
+        generator.writeXml(tempDir.resolve("a.xml"));
+        generator.writeXml(tempDir.resolve("b.xml"));
+
+        assertArrayEquals(digest(tempDir.resolve("a.csv")), digest(tempDir.resolve("b.csv")));
+        assertArrayEquals(digest(tempDir.resolve("a.xml")), digest(tempDir.resolve("b.xml")));
+
+        new CoverageReportGenerator(SEED + 1).classes(1_000).writeCsv(tempDir.resolve("c.csv"));
+        assertFalse(Arrays.equals(digest(tempDir.resolve("a.csv")), digest(tempDir.resolve("c.csv"))));
+    }
+
+    private static byte[] digest(Path file) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testQuotedNamesAndMalformedRows(@TempDir Path tempDir) throws IOException {
+        Path report = tempDir.resolve("report.csv");
+        CoverageReportGenerator.Expected expected = new CoverageReportGenerator(SEED)
+                .classes(1_000).quotedNameRatio(0.2).malformedRowRatio(0.1).writeCsv(report);
+
+        List<CodeCoverageAgent.CoverageData> parsed = new CodeCoverageAgent(THRESHOLD)
+                .parseCoverageReport(report.toString());
+
+        assertTrue(expected.getMalformedRows() > 0);
+        assertEquals(expected.getClasses(), parsed.size());
+        assertTrue(parsed.stream().anyMatch(data -> data.getClassName().startsWith("Quoted,\"Name\"")));
+        assertEquals(expected.getInstructionsCovered(),
+                parsed.stream().mapToLong(CodeCoverageAgent.CoverageData::getInstructionsCovered).sum());
+    }
+
+    @Test
+    @Tag(SCALING)
+    void testCsvParseThroughput(@TempDir Path tempDir) throws IOException {
+        Path report = tempDir.resolve("report.csv");
+        CoverageReportGenerator.Expected expected = generator().writeCsv(report);
+        CodeCoverageAgent agent = new CodeCoverageAgent(THRESHOLD);
+
+        double best = 0;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            long[] rows = new long[1];
+            long start = System.nanoTime();
+            agent.parseCoverageReport(report.toString(), data -> rows[0]++);
+            long elapsed = System.nanoTime() - start;
+            assertEquals(expected.getClasses(), rows[0]);
+            best = Math.max(best, rows[0] * 1e9 / elapsed);
+        }
+
+        checkThroughput(CSV_PARSE_FLOOR, "CSV parsing", best, "");
+    }
+
+    @Test
+    @Tag(SCALING)
+    void testCsvAnalysisThroughput(@TempDir Path tempDir) throws IOException {
+        Path report = tempDir.resolve("report.csv");
+        CoverageReportGenerator.Expected expected = generator().writeCsv(report);
+
+        AnalysisProfile profile = analyzeBest(report, expected);
+
+        assertEquals(expected.getClasses(), profile.getRows());
+        assertEquals(expected.getBytes(), profile.getBytes());
+        checkThroughput(CSV_ANALYSIS_FLOOR, "CSV analysis", profile.getRowsPerSecond(), profile.format());
+    }
+
+    @Test
+    @Tag(SCALING)
+    void testXmlAnalysisThroughput(@TempDir Path tempDir) throws IOException {
+        Path report = tempDir.resolve("report.xml");
+        CoverageReportGenerator.Expected expected = xmlGenerator().writeXml(report);
+
+        assertXmlThroughput(report, expected);
+    }
+
+    @Test
+    @Tag(SCALING)
+    void testXmlAnalysisThroughputWithLargePackages(@TempDir Path tempDir) throws IOException {
+        Path report = tempDir.resolve("report.xml");
+        CoverageReportGenerator.Expected expected = xmlGenerator().packageDepth(2).classesPerPackage(10_000)
+                .writeXml(report);
+
+        // Per-package work that grows with the package size shows up here
+        assertXmlThroughput(report, expected);
+    }
+
+    private static void assertXmlThroughput(Path report, CoverageReportGenerator.Expected expected)
+            throws IOException {
+        AnalysisProfile profile = analyzeBest(report, expected);
+
+        assertEquals(expected.getClasses(), profile.getRows());
+        checkThroughput(XML_ANALYSIS_FLOOR, "XML analysis", profile.getRowsPerSecond(), profile.format());
+    }
+
+    @Test
+    @Tag(SCALING)
+    void testStreamingAnalysisHeapCeiling(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path csv = tempDir.resolve("report.csv");
+        Path xml = tempDir.resolve("report.xml");
+        Map<Path, CoverageReportGenerator.Expected> reports = new LinkedHashMap<>();
+        reports.put(csv, generator().writeCsv(csv));
+        reports.put(xml, xmlGenerator().writeXml(xml));
+
+        for (Map.Entry<Path, CoverageReportGenerator.Expected> entry : reports.entrySet()) {
+            Path report = entry.getKey();
+            Path output = tempDir.resolve(report.getFileName() + ".json");
+            Path log = tempDir.resolve(report.getFileName() + ".log");
+            List<String> command = new ArrayList<>();
+            command.add(ProcessHandle.current().info().command().orElse("java"));
+            command.add(STREAMING_HEAP);
+            command.add("-XX:+ExitOnOutOfMemoryError");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(CodeCoverageAgent.class.getName());
+            command.add("--format=json");
+            command.add("--output=" + output);
+            command.add(report.toString());
+            command.add(String.valueOf(THRESHOLD));
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile())
+                    .start();
+
+            assertTrue(process.waitFor(10, TimeUnit.MINUTES), "Analysis of " + report + " did not finish");
+            assertEquals(0, process.exitValue(), "Analysis of " + report + " failed with " + STREAMING_HEAP
+                    + ":\n" + Files.readString(log));
+            assertTrue(Files.readString(output).contains("\"totalClasses\":" + entry.getValue().getClasses() + ","));
+        }
+    }
+
+    @Test
+    @Tag(SCALING)
+    void testTableHeapCeiling(@TempDir Path tempDir) throws IOException {
+        Path report = tempDir.resolve("report.csv");
+        CoverageReportGenerator.Expected expected = generator().writeCsv(report);
+        CodeCoverageAgent agent = new CodeCoverageAgent(THRESHOLD);
+
+        long before = usedHeap();
+        CoverageTable table = agent.parseCoverageTable(report.toString());
+        long retained = usedHeap() - before;
+
+        assertEquals(expected.getClasses(), table.size());
+        assertTrue(retained <= TABLE_BYTES_PER_CLASS * table.size(),
+                String.format("Coverage table retains %d bytes per class, above the ceiling of %d",
+                        retained / table.size(), TABLE_BYTES_PER_CLASS));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
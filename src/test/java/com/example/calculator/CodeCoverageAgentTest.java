@@ -81,6 +81,12 @@ class CodeCoverageAgentTest {
         assertEquals(2, coverageList.size());
         assertEquals("TestClass1", coverageList.get(0).getClassName());
         assertEquals("TestClass2", coverageList.get(1).getClassName());
+        assertEquals("com.example", coverageList.get(0).getPackageName());
+        assertEquals("com.example.TestClass1", coverageList.get(0).getQualifiedName());
+        assertEquals(1, coverageList.get(1).getBranchesMissed());
+        assertEquals(4, coverageList.get(1).getBranchesCovered());
+        assertEquals(3, coverageList.get(1).getComplexityMissed());
+        assertEquals(7, coverageList.get(1).getComplexityCovered());
         assertEquals(10, coverageList.get(0).getInstructionsMissed());
         assertEquals(20, coverageList.get(1).getInstructionsMissed());
     }
@@ -113,6 +119,51 @@ class CodeCoverageAgentTest {
         assertEquals("TestClass3", coverageList.get(1).getClassName());
     }
 
+    @Test
+    void testParseCoverageReportWithQuotedFields(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("quoted.csv");
+        String csvContent = """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                "my,app",com.example,"Odd,""Name""\",10,90,0,5,5,45,1,9,1,9
+                """;
+        Files.writeString(csvFile, csvContent);
+
+        List<CodeCoverageAgent.CoverageData> result = agent.parseCoverageReport(csvFile.toString());
+        CoverageCache cache = agent.parseCoverageReport(csvFile.toString(), CoverageCache.empty());
+
+        assertEquals(1, result.size());
+        assertEquals("Odd,\"Name\"", result.get(0).getClassName());
+        assertEquals(90, result.get(0).getInstructionsCovered());
+        assertNotNull(cache.get("com.example.Odd,\"Name\""));
+    }
+
+    @Test
+    void testParseCoverageReportIncremental(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        String header = "GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED\n";
+        Files.writeString(csvFile, header
+                + "test,com.example,TestClass1,10,90,0,5,5,45,2,8,1,9\n"
+                + "test,com.example,TestClass2,20,80,1,4,10,40,3,7,2,8\n");
+
+        CoverageCache first = agent.parseCoverageReport(csvFile.toString(), CoverageCache.empty());
+        assertEquals(2, first.size());
+
+        // An unchanged report is served from the cache as a whole
+        assertSame(first, agent.parseCoverageReport(csvFile.toString(), first));
+
+        Files.writeString(csvFile, header
+                + "test,com.example,TestClass1,10,90,0,5,5,45,2,8,1,9\n"
+                + "test,com.example,TestClass2,5,95,1,4,10,40,3,7,2,8\n"
+                + "test,com.example,IncompleteClass\n");
+        CoverageCache second = agent.parseCoverageReport(csvFile.toString(), first);
+
+        assertEquals(2, second.size());
+        // Unchanged rows are carried over with their row hash rather than parsed again
+        assertEquals(first.get("com.example.TestClass1").getRowHash(), second.get("com.example.TestClass1").getRowHash());
+        assertEquals(90, second.get("com.example.TestClass1").getData().getInstructionsCovered());
+        assertEquals(5, second.get("com.example.TestClass2").getData().getInstructionsMissed());
+    }
+
     @Test
     void testIdentifyLowCoverageClasses() {
         List<CodeCoverageAgent.CoverageData> coverageData = List.of(
@@ -127,6 +178,68 @@ class CodeCoverageAgentTest {
         assertEquals("LowCoverageClass", lowCoverageClasses.get(0).getClassName());
     }
 
+    @Test
+    void testIdentifyLowCoverageClassesInTable(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        String csvContent = """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,HighCoverageClass,10,90,0,5,5,45,1,9,1,9
+                test,com.example,LowCoverageClass,40,60,2,3,20,30,4,6,4,6
+                test,com.example,WorseCoverageClass,70,30,2,3,20,30,4,6,4,6
+                """;
+        Files.writeString(csvFile, csvContent);
+
+        CoverageTable table = agent.parseCoverageTable(csvFile.toString());
+
+        assertEquals(3, table.size());
+        assertEquals(List.of("LowCoverageClass", "WorseCoverageClass"),
+                agent.identifyLowCoverageClasses(table).stream().map(CodeCoverageAgent.CoverageData::getClassName).toList());
+        assertEquals(List.of("WorseCoverageClass"),
+                agent.identifyLowCoverageClasses(table, OffenderRanking.MISSED_INSTRUCTIONS, 1).stream()
+                        .map(CodeCoverageAgent.CoverageData::getClassName).toList());
+    }
+
+    @Test
+    void testIdentifyTopLowCoverageClasses() {
+        List<CodeCoverageAgent.CoverageData> coverageData = List.of(
+                new CodeCoverageAgent.CoverageData("HighCoverageClass", 10, 90, 5, 45, 1, 9),
+                new CodeCoverageAgent.CoverageData("SmallGapClass", 30, 70, 15, 35, 3, 7),
+                new CodeCoverageAgent.CoverageData("LargeGapClass", 300, 400, 60, 80, 3, 7),
+                new CodeCoverageAgent.CoverageData("WorstRatioClass", 50, 10, 20, 5, 6, 1)
+        );
+
+        List<CodeCoverageAgent.CoverageData> byInstructions =
+                agent.identifyLowCoverageClasses(coverageData, OffenderRanking.MISSED_INSTRUCTIONS, 2);
+        List<CodeCoverageAgent.CoverageData> byRatio =
+                agent.identifyLowCoverageClasses(coverageData, OffenderRanking.COVERAGE_RATIO, 1);
+
+        assertEquals(2, byInstructions.size());
+        assertEquals("LargeGapClass", byInstructions.get(0).getClassName());
+        assertEquals("WorstRatioClass", byInstructions.get(1).getClassName());
+        assertEquals("WorstRatioClass", byRatio.get(0).getClassName());
+    }
+
+    @Test
+    void testAnalyzeAndReportTopOffenders(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        String csvContent = """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,SmallGapClass,30,70,0,5,15,35,1,9,3,7
+                test,com.example,HighCoverageClass,10,90,0,5,5,45,1,9,1,9
+                test,com.example,LargeGapClass,300,400,2,3,60,80,4,6,3,7
+                test,com.example,MediumGapClass,40,60,2,3,20,30,4,6,4,6
+                """;
+        Files.writeString(csvFile, csvContent);
+        CodeCoverageAgent topAgent = new CodeCoverageAgent(0.80, null, OffenderRanking.MISSED_INSTRUCTIONS, 2);
+
+        String report = topAgent.analyzeAndReport(csvFile.toString());
+
+        assertTrue(report.indexOf("LargeGapClass") < report.indexOf("MediumGapClass"));
+        assertFalse(report.contains("SmallGapClass"));
+        assertTrue(report.contains("... and 1 more class(es) below threshold"));
+        assertTrue(report.contains("- Classes below threshold: 3"));
+    }
+
     @Test
     void testGenerateRecommendationsForResponseClass() {
         List<CodeCoverageAgent.CoverageData> lowCoverageClasses = List.of(
@@ -196,6 +309,154 @@ class CodeCoverageAgentTest {
         assertTrue(report.contains("LowCoverageClass"));
     }
 
+    @Test
+    void testAnalyzeAndReportPackagesBelowThreshold(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        String csvContent = """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example.good,HighCoverageClass,10,90,0,5,5,45,1,9,1,9
+                test,com.example.bad,LowCoverageClass,40,60,2,3,20,30,4,6,4,6
+                test,com.example.bad,OtherClass,5,95,0,1,1,19,0,2,0,2
+                """;
+        Files.writeString(csvFile, csvContent);
+
+        String report = agent.analyzeAndReport(csvFile.toString());
+
+        assertTrue(report.contains("Packages below coverage threshold:\n- com.example.bad - Coverage: 77.50% (2 classes)"));
+        assertFalse(report.contains("- com.example.good"));
+        assertTrue(report.contains("- Packages below threshold: 1"));
+    }
+
+    @Test
+    void testPackagesBelowThresholdCoverTheirSubPackages(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        String csvContent = """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,HighCoverageClass,10,90,0,5,5,45,1,9,1,9
+                test,com.example.sub,LowCoverageClass,90,10,2,3,20,30,4,6,4,6
+                """;
+        Files.writeString(csvFile, csvContent);
+
+        String report = agent.analyzeAndReport(csvFile.toString());
+
+        // com.example has one class of its own; its coverage and count include com.example.sub
+        assertTrue(report.contains("- com.example - Coverage: 50.00% (2 classes)"));
+        assertTrue(report.contains("- com.example.sub - Coverage: 10.00% (1 classes)"));
+        assertTrue(report.contains("- Packages below threshold: 2"));
+    }
+
+    @Test
+    void testAnalyzeAndReportProfile(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        String csvContent = """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,HighCoverageClass,10,90,0,5,5,45,1,9,1,9
+                test,com.example,LowCoverageClass,40,60,2,3,20,30,4,6,4,6
+                """;
+        Files.writeString(csvFile, csvContent);
+
+        assertNull(agent.getLastProfile());
+        String report = agent.analyzeAndReport(csvFile.toString());
+
+        assertTrue(report.matches("(?s).*- Throughput: \\d+ rows/s, \\d+[.,]\\d{2} MB/s\n.*"));
+        AnalysisProfile profile = agent.getLastProfile();
+        assertEquals(2, profile.getRows());
+        assertEquals(Files.size(csvFile), profile.getBytes());
+        assertTrue(profile.getNanos(AnalysisProfile.Phase.PARSE) > 0);
+        assertTrue(profile.getNanos(AnalysisProfile.Phase.REPORT) > 0);
+    }
+
+    @Test
+    void testAnalyzeAndReportWithXmlFile(@TempDir Path tempDir) throws IOException {
+        Path xmlFile = tempDir.resolve("test-coverage.xml");
+        Files.writeString(xmlFile, JacocoXmlReportParserTest.SAMPLE_REPORT);
+
+        String report = agent.analyzeAndReport(xmlFile.toString());
+
+        assertTrue(report.contains("Class: CalculatorService - Coverage: 36.84%"));
+        assertTrue(report.contains("Untested method: divide() (line 21)"));
+        assertTrue(report.contains("Uncovered lines: 21-24"));
+        assertTrue(report.contains("Missed branches at line(s): 9"));
+        assertTrue(report.contains("- Total classes: 2"));
+    }
+
+    @Test
+    void testGenerateRecommendationsWithoutDetail() {
+        List<CodeCoverageAgent.CoverageData> lowCoverageClasses = List.of(
+                new CodeCoverageAgent.CoverageData("CalculatorService", 25, 35, 12, 18, 4, 6)
+        );
+
+        List<String> recommendations = agent.generateRecommendations(lowCoverageClasses, java.util.Map.of());
+
+        assertEquals(1, recommendations.size());
+        assertFalse(recommendations.get(0).contains("Uncovered lines"));
+    }
+
+    @Test
+    void testAnalyzeAndReportWithCache(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        Path cacheFile = tempDir.resolve("coverage-cache.bin");
+        String header = "GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED\n";
+        Files.writeString(csvFile, header
+                + "test,com.example,StableClass,10,90,0,5,5,45,1,9,1,9\n"
+                + "test,com.example,ChangingClass,10,90,2,3,20,30,4,6,4,6\n");
+        CodeCoverageAgent cachingAgent = new CodeCoverageAgent(0.80, cacheFile);
+
+        String firstReport = cachingAgent.analyzeAndReport(csvFile.toString());
+        assertTrue(firstReport.contains("No baseline found"));
+        assertTrue(Files.exists(cacheFile));
+
+        Files.writeString(csvFile, header
+                + "test,com.example,StableClass,10,90,0,5,5,45,1,9,1,9\n"
+                + "test,com.example,ChangingClass,40,60,2,3,20,30,4,6,4,6\n");
+        String secondReport = cachingAgent.analyzeAndReport(csvFile.toString());
+
+        assertTrue(secondReport.contains("Changes since last run:"));
+        assertTrue(secondReport.contains("Overall delta: -15.00%"));
+        assertTrue(secondReport.contains("- Newly below threshold: 1"));
+        assertTrue(secondReport.contains("  - ChangingClass 60.00%"));
+
+        String thirdReport = cachingAgent.analyzeAndReport(csvFile.toString());
+        assertTrue(thirdReport.contains("Overall delta: +0.00%"));
+    }
+
+    @Test
+    void testProfileCountsBytesReadWithCache(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        Path cacheFile = tempDir.resolve("coverage-cache.bin");
+        Files.writeString(csvFile, "GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED\n"
+                + "test,com.example,LowCoverageClass,40,60,2,3,20,30,4,6,4,6\n");
+        CodeCoverageAgent cachingAgent = new CodeCoverageAgent(0.80, cacheFile);
+
+        // Hashed, then parsed because there is no cache yet
+        cachingAgent.analyzeAndReport(csvFile.toString());
+        assertEquals(2 * Files.size(csvFile), cachingAgent.getLastProfile().getBytes());
+
+        // Hashed and found in the cache
+        cachingAgent.analyzeAndReport(csvFile.toString());
+        assertEquals(Files.size(cacheFile) + Files.size(csvFile), cachingAgent.getLastProfile().getBytes());
+    }
+
+    @Test
+    void testAnalyzeAndReportUnchangedXmlFromCache(@TempDir Path tempDir) throws IOException {
+        Path xmlFile = tempDir.resolve("test-coverage.xml");
+        Path cacheFile = tempDir.resolve("coverage-cache.bin");
+        Files.writeString(xmlFile, JacocoXmlReportParserTest.SAMPLE_REPORT);
+        CodeCoverageAgent cachingAgent = new CodeCoverageAgent(0.80, cacheFile);
+
+        String firstReport = cachingAgent.analyzeAndReport(xmlFile.toString());
+        CoverageCache cached = CoverageCache.load(cacheFile);
+        String secondReport = cachingAgent.analyzeAndReport(xmlFile.toString());
+
+        assertSame(cached, cachingAgent.loadCoverage(xmlFile.toString(), cached, List.of()));
+        assertTrue(secondReport.contains("Overall delta: +0.00%"));
+        assertTrue(secondReport.contains("Untested method: divide() (line 21)"));
+        assertTrue(secondReport.contains("Uncovered lines: 21-24"));
+        assertTrue(secondReport.contains("Missed branches at line(s): 9"));
+        assertEquals(firstReport.substring(0, firstReport.indexOf("Summary:")),
+                secondReport.substring(0, secondReport.indexOf("Summary:")));
+    }
+
     @Test
     void testAnalyzeAndReportWithInvalidFile() {
         String report = agent.analyzeAndReport("/nonexistent/file.csv");
@@ -258,6 +519,40 @@ class CodeCoverageAgentTest {
         }
     }
 
+    @Test
+    void testMainMethodWithJsonOutput(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        Path jsonFile = tempDir.resolve("coverage.json");
+        String csvContent = """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,LowCoverageClass,40,60,2,3,20,30,4,6,4,6
+                """;
+        Files.writeString(csvFile, csvContent);
+
+        CodeCoverageAgent.main(new String[]{"--format=json", "--output=" + jsonFile, csvFile.toString(), "0.80"});
+
+        String json = Files.readString(jsonFile);
+        assertTrue(json.contains("\"className\":\"LowCoverageClass\""));
+        assertTrue(json.contains("\"totalClasses\":1"));
+    }
+
+    @Test
+    void testParseCoverageReportStreaming(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("test-coverage.csv");
+        String csvContent = """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,TestClass1,10,90,0,5,5,45,2,8,1,9
+                test,com.example,IncompleteClass
+                test,com.example,TestClass2,20,80,1,4,10,40,3,7,2,8
+                """;
+        Files.writeString(csvFile, csvContent);
+
+        List<String> names = new java.util.ArrayList<>();
+        agent.parseCoverageReport(csvFile.toString(), data -> names.add(data.getClassName()));
+
+        assertEquals(List.of("TestClass1", "TestClass2"), names);
+    }
+
     @Test
     void testMainMethodWithInvalidThreshold(@TempDir Path tempDir) throws IOException {
         Path csvFile = tempDir.resolve("test-coverage.csv");
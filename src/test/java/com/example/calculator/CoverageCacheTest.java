@@ -0,0 +1,150 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CoverageCache
+ */
+class CoverageCacheTest {
+
+    @Test
+    void testSaveAndLoadRoundTrip(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("cache/coverage.bin");
+        byte[] hash = {1, 2, 3, 4};
+        CoverageCache cache = new CoverageCache(hash);
+        cache.put("com.example.TestClass", 42L,
+                new CodeCoverageAgent.CoverageData("TestClass", 10, 90, 5, 45, 1, 9));
+        cache.put("com.example.Outer.Inner", -7L,
+                new CodeCoverageAgent.CoverageData("Outer.Inner", 300, 200000, 0, 1, 0, 0));
+
+        cache.save(cacheFile);
+        CoverageCache loaded = CoverageCache.load(cacheFile);
+
+        assertTrue(loaded.matchesReport(hash));
+        assertEquals(2, loaded.size());
+        assertEquals(42L, loaded.get("com.example.TestClass").getRowHash());
+        CodeCoverageAgent.CoverageData inner = loaded.get("com.example.Outer.Inner").getData();
+        assertEquals("Outer.Inner", inner.getClassName());
+        assertEquals(300, inner.getInstructionsMissed());
+        assertEquals(200000, inner.getInstructionsCovered());
+        assertEquals(1, inner.getLinesCovered());
+        assertEquals(List.of("com.example.TestClass", "com.example.Outer.Inner"),
+                List.copyOf(loaded.getCoverageByClass().keySet()));
+    }
+
+    @Test
+    void testRoundTripKeepsBranchAndComplexityCounters(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("coverage.bin");
+        CoverageCache cache = new CoverageCache(new byte[]{9});
+        cache.put("com.example.Branchy", 1L,
+                new CodeCoverageAgent.CoverageData("com.example", "Branchy", 1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        cache.put("com.example.Branchy", 2L,
+                new CodeCoverageAgent.CoverageData("com.example", "Branchy", 10, 20, 30, 40, 50, 60, 70, 80, 90, 100));
+
+        cache.save(cacheFile);
+        CoverageCache loaded = CoverageCache.load(cacheFile);
+
+        assertEquals(1, loaded.size());
+        assertEquals(2L, loaded.get("com.example.Branchy").getRowHash());
+        CodeCoverageAgent.CoverageData data = loaded.get("com.example.Branchy").getData();
+        assertEquals("com.example", data.getPackageName());
+        assertEquals(30, data.getBranchesMissed());
+        assertEquals(40, data.getBranchesCovered());
+        assertEquals(70, data.getComplexityMissed());
+        assertEquals(80, data.getComplexityCovered());
+        assertEquals(100, data.getMethodsCovered());
+        assertEquals(1, loaded.getTable().size());
+    }
+
+    @Test
+    void testRoundTripKeepsClassDetail(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("coverage.bin");
+        ClassCoverageDetail detail = new JacocoXmlReportParser().parse(writeSampleReport(tempDir)).get(0);
+        CoverageCache cache = new CoverageCache(new byte[]{3});
+        cache.put(detail.getQualifiedClassName(), 0L, detail.toCoverageData(), detail);
+        cache.put("com.example.FromCsv", 5L,
+                new CodeCoverageAgent.CoverageData("com.example", "FromCsv", 1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+
+        cache.save(cacheFile);
+        CoverageCache loaded = CoverageCache.load(cacheFile);
+        ClassCoverageDetail restored = loaded.getDetail(0);
+
+        assertTrue(loaded.matchesReport(new byte[]{3}));
+        assertNull(loaded.getDetail(1));
+        assertEquals(detail.getClassName(), restored.getClassName());
+        assertEquals(detail.getPackageName(), restored.getPackageName());
+        assertEquals(detail.getSourceFileName(), restored.getSourceFileName());
+        assertEquals(detail.getBranches().getMissed(), restored.getBranches().getMissed());
+        assertEquals(detail.getMethodCoverage().size(), restored.getMethodCoverage().size());
+        assertEquals(detail.getMethodCoverage().get(1).getLine(), restored.getMethodCoverage().get(1).getLine());
+        assertEquals(detail.getUncoveredLines().toString(), restored.getUncoveredLines().toString());
+        assertEquals(detail.getPartialBranchLines(), restored.getPartialBranchLines());
+    }
+
+    @Test
+    void testLoadOtherVersionFails(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("coverage-v2.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(cacheFile))) {
+            out.writeInt(0x4A434341);
+            out.writeByte(2);
+            out.writeByte(0);
+            out.writeByte(0);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> CoverageCache.load(cacheFile));
+        assertTrue(e.getMessage().contains("Unsupported coverage cache version 2"));
+    }
+
+    @Test
+    void testLoadMissingFileReturnsEmptyCache(@TempDir Path tempDir) throws IOException {
+        CoverageCache cache = CoverageCache.load(tempDir.resolve("missing.bin"));
+
+        assertTrue(cache.isEmpty());
+        assertFalse(cache.matchesReport(new byte[0]));
+    }
+
+    @Test
+    void testLoadInvalidFile(@TempDir Path tempDir) throws IOException {
+        Path cacheFile = tempDir.resolve("invalid.bin");
+        Files.writeString(cacheFile, "not a cache");
+
+        assertThrows(IOException.class, () -> CoverageCache.load(cacheFile));
+    }
+
+    @Test
+    void testHashFilesCoversClassDirectories(@TempDir Path tempDir) throws IOException {
+        Path execFile = Files.writeString(tempDir.resolve("jacoco.exec"), "exec");
+        Path classesDir = Files.createDirectories(tempDir.resolve("classes/com/example"));
+        Files.writeString(classesDir.resolve("A.class"), "a");
+        List<Path> directories = List.of(tempDir.resolve("classes"), tempDir.resolve("missing"));
+        byte[] first = CoverageCache.hashFiles(execFile, directories);
+
+        assertArrayEquals(first, CoverageCache.hashFiles(execFile, directories));
+        Files.writeString(classesDir.resolve("A.class"), "b");
+        assertFalse(new CoverageCache(first).matchesReport(CoverageCache.hashFiles(execFile, directories)));
+    }
+
+    private static Path writeSampleReport(Path tempDir) throws IOException {
+        return Files.writeString(tempDir.resolve("report.xml"), JacocoXmlReportParserTest.SAMPLE_REPORT);
+    }
+
+    @Test
+    void testHashFileDetectsChanges(@TempDir Path tempDir) throws IOException {
+        Path report = tempDir.resolve("report.csv");
+        Files.writeString(report, "a,b,c");
+        byte[] first = CoverageCache.hashFile(report);
+        Files.writeString(report, "a,b,d");
+
+        assertFalse(new CoverageCache(first).matchesReport(CoverageCache.hashFile(report)));
+        assertNotEquals(CoverageCache.rowHash("a,b,c"), CoverageCache.rowHash("a,b,d"));
+    }
+}
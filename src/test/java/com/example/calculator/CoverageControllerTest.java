@@ -0,0 +1,81 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CoverageControllerTest {
+
+    @TempDir
+    static Path tempDir;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void coverageProperties(DynamicPropertyRegistry registry) throws IOException {
+        Path csvFile = tempDir.resolve("report.csv");
+        Files.writeString(csvFile, """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,HighCoverageClass,10,90,0,5,5,45,1,9,1,9
+                test,com.example,LowCoverageClass,40,60,2,3,20,30,4,6,4,6
+                """);
+        registry.add("coverage.agent.report", csvFile::toString);
+    }
+
+    @Test
+    void testOverview() throws Exception {
+        mockMvc.perform(get("/api/coverage"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.overallCoverage").value(0.75))
+                .andExpect(jsonPath("$.totalClasses").value(2))
+                .andExpect(jsonPath("$.classesBelowThreshold").value(1));
+    }
+
+    @Test
+    void testClassByQualifiedName() throws Exception {
+        mockMvc.perform(get("/api/coverage/classes/com.example.HighCoverageClass"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.className").value("HighCoverageClass"))
+                .andExpect(jsonPath("$.instructionCoverage").value(0.9));
+    }
+
+    @Test
+    void testUnknownClass() throws Exception {
+        mockMvc.perform(get("/api/coverage/classes/MissingClass"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testPackageRollup() throws Exception {
+        mockMvc.perform(get("/api/coverage/packages/com.example"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.instructionCoverage").value(0.75))
+                .andExpect(jsonPath("$.totalClasses").value(2))
+                .andExpect(jsonPath("$.belowThreshold").value(true));
+        mockMvc.perform(get("/api/coverage/packages/org.missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testBelowThreshold() throws Exception {
+        mockMvc.perform(get("/api/coverage/below-threshold"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].className").value("LowCoverageClass"));
+    }
+}
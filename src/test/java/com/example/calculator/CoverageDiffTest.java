@@ -0,0 +1,80 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CoverageDiff
+ */
+class CoverageDiffTest {
+
+    @Test
+    void testCompare() {
+        Map<String, CodeCoverageAgent.CoverageData> baseline = new LinkedHashMap<>();
+        baseline.put("com.example.Dropped", new CodeCoverageAgent.CoverageData("Dropped", 10, 90, 0, 0, 0, 0));
+        baseline.put("com.example.Improved", new CodeCoverageAgent.CoverageData("Improved", 50, 50, 0, 0, 0, 0));
+        baseline.put("com.example.Same", new CodeCoverageAgent.CoverageData("Same", 0, 100, 0, 0, 0, 0));
+
+        Map<String, CodeCoverageAgent.CoverageData> current = new LinkedHashMap<>();
+        current.put("com.example.Dropped", new CodeCoverageAgent.CoverageData("Dropped", 40, 60, 0, 0, 0, 0));
+        current.put("com.example.Improved", new CodeCoverageAgent.CoverageData("Improved", 10, 90, 0, 0, 0, 0));
+        current.put("com.example.Same", new CodeCoverageAgent.CoverageData("Same", 0, 100, 0, 0, 0, 0));
+        current.put("com.example.New", new CodeCoverageAgent.CoverageData("New", 100, 0, 0, 0, 0, 0));
+
+        CoverageDiff diff = CoverageDiff.compare(baseline, current, 0.80);
+
+        assertEquals(1, diff.getDropped().size());
+        assertEquals("Dropped", diff.getDropped().get(0).getClassName());
+        assertEquals(1, diff.getImproved().size());
+        assertEquals("Improved", diff.getImproved().get(0).getClassName());
+        assertEquals(1, diff.getNewlyBelowThreshold().size());
+        assertEquals(0.80, diff.getBaselineCoverage(), 0.001);
+        assertEquals(0.625, diff.getCurrentCoverage(), 0.001);
+        assertEquals(-0.175, diff.getOverallDelta(), 0.001);
+    }
+
+    @Test
+    void testAppendTo() throws IOException {
+        Map<String, CodeCoverageAgent.CoverageData> baseline = Map.of(
+                "com.example.A", new CodeCoverageAgent.CoverageData("A", 50, 50, 0, 0, 0, 0));
+        Map<String, CodeCoverageAgent.CoverageData> current = Map.of(
+                "com.example.A", new CodeCoverageAgent.CoverageData("A", 25, 75, 0, 0, 0, 0));
+
+        StringBuilder report = new StringBuilder();
+        CoverageDiff.compare(baseline, current, 0.80).appendTo(report);
+
+        assertTrue(report.toString().contains("Overall delta: +25.00% (50.00% -> 75.00%)"));
+        assertTrue(report.toString().contains("- Improved: 1"));
+        assertTrue(report.toString().contains("  - A 75.00%"));
+        assertTrue(report.toString().contains("- Dropped: 0"));
+    }
+
+    @Test
+    void testCompareCachesListsAddedChangedAndRemoved() {
+        CoverageCache baseline = new CoverageCache(new byte[0]);
+        baseline.put("com.example.Changed", 1L, new CodeCoverageAgent.CoverageData("com.example", "Changed",
+                0, 100, 0, 10, 0, 0, 0, 0, 0, 0));
+        baseline.put("com.example.Same", 2L, new CodeCoverageAgent.CoverageData("Same", 0, 100, 0, 0, 0, 0));
+        baseline.put("com.example.Removed", 3L, new CodeCoverageAgent.CoverageData("Removed", 0, 100, 0, 0, 0, 0));
+
+        CoverageCache current = new CoverageCache(new byte[0]);
+        current.put("com.example.Same", 2L, new CodeCoverageAgent.CoverageData("Same", 0, 100, 0, 0, 0, 0));
+        current.put("com.example.Changed", 4L, new CodeCoverageAgent.CoverageData("com.example", "Changed",
+                0, 100, 5, 5, 0, 0, 0, 0, 0, 0));
+        current.put("com.example.Added", 5L, new CodeCoverageAgent.CoverageData("Added", 50, 50, 0, 0, 0, 0));
+
+        CoverageDiff diff = CoverageDiff.compare(baseline, current, 0.80);
+
+        assertEquals(List.of("com.example.Added"), diff.getAdded());
+        assertEquals(List.of("com.example.Changed"), diff.getChanged());
+        assertEquals(List.of("com.example.Removed"), diff.getRemoved());
+        assertTrue(diff.getDropped().isEmpty());
+        assertTrue(diff.getNewlyBelowThreshold().isEmpty());
+    }
+}
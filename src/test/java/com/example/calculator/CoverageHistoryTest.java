@@ -0,0 +1,207 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CoverageHistory
+ */
+class CoverageHistoryTest {
+
+    private static CodeCoverageAgent.CoverageData data(String className, int missed, int covered) {
+        return new CodeCoverageAgent.CoverageData("com.example", className, missed, covered, 0, 0, 0, 0);
+    }
+
+    @Test
+    void testOverallSeries(@TempDir Path tempDir) throws IOException {
+        CoverageHistory history = new CoverageHistory(tempDir.resolve("history/coverage.bin"));
+
+        assertTrue(history.getBuilds().isEmpty());
+        history.append("abc123", 1000L, List.of(data("A", 10, 90), data("B", 50, 50)));
+        history.append("def456", 2000L, List.of(data("A", 0, 100), data("B", 50, 50)));
+
+        List<CoverageHistory.Build> builds = history.getBuilds();
+        assertEquals(2, builds.size());
+        assertEquals("abc123", builds.get(0).getBuildId());
+        assertEquals(1000L, builds.get(0).getTimestamp());
+        assertEquals(0.70, builds.get(0).getCoverage(), 0.0001);
+        assertEquals(0.75, builds.get(1).getCoverage(), 0.0001);
+        assertEquals(2, builds.get(1).getTotalClasses());
+        assertEquals(1, builds.get(1).getIndex());
+    }
+
+    @Test
+    void testDroppedClassesOverLastBuilds(@TempDir Path tempDir) throws IOException {
+        CoverageHistory history = new CoverageHistory(tempDir.resolve("coverage.bin"));
+        history.append("1", 1L, List.of(data("Stable", 10, 90), data("Falling", 0, 100), data("Rising", 50, 50)));
+        history.append("2", 2L, List.of(data("Stable", 10, 90), data("Falling", 20, 80), data("Rising", 40, 60)));
+        history.append("3", 3L, List.of(data("Stable", 10, 90), data("Falling", 40, 60), data("Rising", 30, 70),
+                data("New", 90, 10)));
+
+        List<CoverageHistory.ClassTrend> lastBuild = history.getDroppedClasses(1);
+        assertEquals(1, lastBuild.size());
+        assertEquals("com.example.Falling", lastBuild.get(0).getClassName());
+        assertEquals(0.80, lastBuild.get(0).getFromCoverage(), 0.0001);
+        assertEquals(0.60, lastBuild.get(0).getToCoverage(), 0.0001);
+
+        List<CoverageHistory.ClassTrend> allBuilds = history.getDroppedClasses(10);
+        assertEquals(1, allBuilds.size());
+        assertEquals(-0.40, allBuilds.get(0).getDelta(), 0.0001);
+
+        assertThrows(IllegalArgumentException.class, () -> history.getDroppedClasses(0));
+    }
+
+    @Test
+    void testClassSeriesWithRemovedClass(@TempDir Path tempDir) throws IOException {
+        CoverageHistory history = new CoverageHistory(tempDir.resolve("coverage.bin"));
+        history.append("1", 1L, List.of(data("Kept", 10, 90), data("Flaky", 50, 50)));
+        history.append("2", 2L, List.of(data("Kept", 20, 80)));
+        history.append("3", 3L, List.of(data("Kept", 20, 80), data("Flaky", 25, 75)));
+
+        double[] flaky = history.getClassSeries("com.example.Flaky");
+        assertEquals(0.50, flaky[0], 0.0001);
+        assertTrue(Double.isNaN(flaky[1]));
+        assertEquals(0.75, flaky[2], 0.0001);
+        assertArrayEquals(new double[]{0.90, 0.80, 0.80}, history.getClassSeries("com.example.Kept"), 0.0001);
+        assertTrue(Double.isNaN(history.getClassSeries("com.example.Missing")[0]));
+    }
+
+    @Test
+    void testKeyframesAcrossManyBuilds(@TempDir Path tempDir) throws IOException {
+        CoverageHistory history = new CoverageHistory(tempDir.resolve("coverage.bin"));
+        int builds = CoverageHistory.KEYFRAME_INTERVAL * 2 + 5;
+        for (int build = 0; build < builds; build++) {
+            List<CodeCoverageAgent.CoverageData> coverage = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                // Class i changes only every i-th build
+                int covered = 100 + build / (i + 1);
+                coverage.add(data("C" + i, 10, covered));
+            }
+            history.append(String.valueOf(build), build, coverage);
+        }
+
+        assertEquals(builds, history.getBuilds().size());
+        double[] series = history.getClassSeries("com.example.C3");
+        for (int build = 0; build < builds; build++) {
+            int covered = 100 + build / 4;
+            assertEquals((double) covered / (covered + 10), series[build], 0.0001, "build " + build);
+        }
+        // Coverage only rises, so nothing dropped
+        assertTrue(history.getDroppedClasses(builds).isEmpty());
+    }
+
+    @Test
+    void testClassSeriesAcrossKeyframeWithoutTheClass(@TempDir Path tempDir) throws IOException {
+        CoverageHistory history = new CoverageHistory(tempDir.resolve("coverage.bin"));
+        int keyframe = CoverageHistory.KEYFRAME_INTERVAL;
+        for (int build = 0; build < keyframe; build++) {
+            history.append(String.valueOf(build), build, List.of(data("Kept", 10, 90), data("Gone", 50, 50)));
+        }
+        history.append("keyframe", keyframe, List.of(data("Kept", 10, 90)));
+        history.append("back", keyframe + 1, List.of(data("Kept", 10, 90), data("Gone", 20, 80)));
+
+        double[] gone = history.getClassSeries("com.example.Gone");
+        assertEquals(0.50, gone[keyframe - 1], 0.0001);
+        assertTrue(Double.isNaN(gone[keyframe]));
+        assertEquals(0.80, gone[keyframe + 1], 0.0001);
+    }
+
+    @Test
+    void testIndexPicksUpAppendsOfOtherInstances(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("coverage.bin");
+        CoverageHistory writer = new CoverageHistory(file);
+        CoverageHistory reader = new CoverageHistory(file);
+        writer.append("1", 1L, List.of(data("A", 10, 90), data("B", 50, 50)));
+        assertArrayEquals(new double[]{0.50}, reader.getClassSeries("com.example.B"), 0.0001);
+
+        writer.append("2", 2L, List.of(data("A", 10, 90)));
+        reader.append("3", 3L, List.of(data("A", 40, 60), data("B", 30, 70)));
+
+        assertEquals(List.of("1", "2", "3"), writer.getBuilds().stream().map(CoverageHistory.Build::getBuildId).toList());
+        double[] b = writer.getClassSeries("com.example.B");
+        assertEquals(0.50, b[0], 0.0001);
+        assertTrue(Double.isNaN(b[1]));
+        assertEquals(0.70, b[2], 0.0001);
+        assertEquals("com.example.A", writer.getDroppedClasses(1).get(0).getClassName());
+    }
+
+    @Test
+    void testDeltaEncodingKeepsUnchangedBuildsSmall(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("coverage.bin");
+        CoverageHistory history = new CoverageHistory(file);
+        List<CodeCoverageAgent.CoverageData> coverage = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            coverage.add(data("SomeFairlyLongClassName" + i, i, 1000 - i));
+        }
+
+        history.append("first", 1L, coverage);
+        long afterFirst = Files.size(file);
+        history.append("second", 2L, coverage);
+
+        assertTrue(Files.size(file) - afterFirst < 64, "unchanged build took " + (Files.size(file) - afterFirst) + " bytes");
+    }
+
+    @Test
+    void testTruncatedRecordIsIgnoredAndOverwritten(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("coverage.bin");
+        CoverageHistory history = new CoverageHistory(file);
+        history.append("1", 1L, List.of(data("A", 10, 90)));
+        long complete = Files.size(file);
+        history.append("2", 2L, List.of(data("A", 20, 80), data("B", 1, 1)));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        assertEquals(1, history.getBuilds().size());
+
+        history.append("3", 3L, List.of(data("A", 30, 70)));
+        assertEquals(List.of("1", "3"), history.getBuilds().stream().map(CoverageHistory.Build::getBuildId).toList());
+        assertTrue(Files.size(file) > complete);
+        assertEquals(0.70, history.getClassSeries("com.example.A")[1], 0.0001);
+    }
+
+    @Test
+    void testInvalidFile(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("invalid.bin");
+        Files.writeString(file, "not a history file");
+
+        assertThrows(IOException.class, () -> new CoverageHistory(file).getBuilds());
+    }
+
+    @Test
+    void testAnalysisRecordsItsOwnCoverage(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("report.csv");
+        Path cacheFile = tempDir.resolve("coverage.cache");
+        CoverageHistory history = new CoverageHistory(tempDir.resolve("history.bin"));
+        Files.writeString(csvFile, """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,Tracked,40,60,2,3,20,30,4,6,4,6
+                """);
+        CodeCoverageAgent agent = new CodeCoverageAgent(0.80, cacheFile);
+        agent.analyzeAndWrite(csvFile.toString(), List.of(), new TextReportWriter(new StringWriter()),
+                history, "cached");
+
+        // The analysis without a cache file streams the report and must still record it
+        Files.writeString(csvFile, """
+                GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED
+                test,com.example,Tracked,10,90,2,3,20,30,4,6,4,6
+                """);
+        new CodeCoverageAgent(0.80).analyzeAndWrite(csvFile.toString(), List.of(),
+                new TextReportWriter(new StringWriter()), history, "streamed");
+
+        assertEquals(List.of("cached", "streamed"),
+                history.getBuilds().stream().map(CoverageHistory.Build::getBuildId).toList());
+        assertArrayEquals(new double[]{0.60, 0.90}, history.getClassSeries("com.example.Tracked"), 0.0001);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CoverageIndex and CoverageWatcher
+ */
+class CoverageIndexTest {
+
+    private static final String HEADER = "GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,METHOD_MISSED,METHOD_COVERED\n";
+
+    @Test
+    void testReloadAndQuery(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("report.csv");
+        Files.writeString(csvFile, HEADER
+                + "test,com.example,HighCoverageClass,10,90,0,5,5,45,1,9,1,9\n"
+                + "test,com.example,LowCoverageClass,40,60,2,3,20,30,4,6,4,6\n");
+        CoverageIndex index = new CoverageIndex(new CodeCoverageAgent(0.80), csvFile, List.of());
+
+        assertTrue(index.reload());
+        assertFalse(index.reload());
+
+        CoverageIndex.Overview overview = index.getOverview();
+        assertEquals(0.75, overview.getOverallCoverage(), 0.001);
+        assertEquals(2, overview.getTotalClasses());
+        assertEquals(1, overview.getClassesBelowThreshold());
+        assertNotNull(overview.getUpdatedAt());
+        assertNull(overview.getLastError());
+
+        assertEquals(90, index.findClass("com.example.HighCoverageClass").orElseThrow().getInstructionsCovered());
+        assertEquals(60, index.findClass("LowCoverageClass").orElseThrow().getInstructionsCovered());
+        assertTrue(index.findClass("MissingClass").isEmpty());
+        assertEquals(1, index.getClassesBelowThreshold().size());
+        assertEquals("LowCoverageClass", index.getClassesBelowThreshold().get(0).getClassName());
+
+        CoverageIndex.PackageSummary packageSummary = index.findPackage("com.example").orElseThrow();
+        assertEquals(0.75, packageSummary.getInstructionCoverage(), 0.001);
+        assertEquals(2, packageSummary.getTotalClasses());
+        assertTrue(packageSummary.isBelowThreshold());
+        assertEquals(2, index.findPackage("com").orElseThrow().getTotalClasses());
+        assertTrue(index.findPackage("org").isEmpty());
+    }
+
+    @Test
+    void testReloadAppliesChangedClassesToPackages(@TempDir Path tempDir) throws IOException {
+        Path csvFile = tempDir.resolve("report.csv");
+        Files.writeString(csvFile, HEADER
+                + "test,com.example,Kept,10,90,0,5,5,45,1,9,1,9\n"
+                + "test,com.example,Changed,40,60,2,3,20,30,4,6,4,6\n"
+                + "test,com.example.gone,Removed,50,50,1,1,5,5,1,1,1,1\n");
+        CoverageIndex index = new CoverageIndex(new CodeCoverageAgent(0.80), csvFile, List.of());
+        assertTrue(index.reload());
+
+        Files.writeString(csvFile, HEADER
+                + "test,com.example,Kept,10,90,0,5,5,45,1,9,1,9\n"
+                + "test,com.example,Changed,0,100,0,5,0,50,0,10,0,10\n"
+                + "test,org.example,Added,30,70,3,2,10,40,2,8,2,8\n");
+        assertTrue(index.reload());
+
+        CoverageIndex.PackageSummary comExample = index.findPackage("com.example").orElseThrow();
+        assertEquals(190.0 / 200, comExample.getInstructionCoverage(), 0.001);
+        assertEquals(10.0 / 10, comExample.getBranchCoverage(), 0.001);
+        assertEquals(2, comExample.getTotalClasses());
+        assertTrue(index.findPackage("com.example.gone").isEmpty());
+        assertEquals(0.70, index.findPackage("org").orElseThrow().getInstructionCoverage(), 0.001);
+        assertEquals(260.0 / 300, index.getOverview().getOverallCoverage(), 0.001);
+        assertEquals(3, index.getOverview().getTotalClasses());
+        assertEquals(1, index.getOverview().getClassesBelowThreshold());
+        assertEquals("Added", index.getClassesBelowThreshold().get(0).getClassName());
+    }
+
+    @Test
+    void testReloadQuietlyRecordsError(@TempDir Path tempDir) {
+        CoverageIndex index = new CoverageIndex(new CodeCoverageAgent(0.80), tempDir.resolve("missing.csv"), List.of());
+
+        assertFalse(index.reloadQuietly());
+
+        assertNotNull(index.getOverview().getLastError());
+        assertEquals(0, index.getOverview().getTotalClasses());
+        assertNull(index.getOverview().getUpdatedAt());
+    }
+
+    @Test
+    void testWatcherReloadsChangedReport(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path csvFile = tempDir.resolve("reports/report.csv");
+        CoverageIndex index = new CoverageIndex(new CodeCoverageAgent(0.80), csvFile, List.of());
+
+        try (CoverageWatcher watcher = new CoverageWatcher(index)) {
+            // Starting the watcher does not create the report directory
+            assertFalse(Files.exists(csvFile.getParent()));
+            Files.createDirectories(csvFile.getParent());
+            Files.writeString(csvFile, HEADER + "test,com.example,WatchedClass,40,60,2,3,20,30,4,6,4,6\n");
+
+            long deadline = System.currentTimeMillis() + 15_000;
+            while (index.findClass("WatchedClass").isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+
+        assertTrue(index.findClass("WatchedClass").isPresent());
+    }
+
+    @Test
+    void testWatcherSurvivesDeletedReportDirectory(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path reportDirectory = tempDir.resolve("build/reports");
+        Path csvFile = reportDirectory.resolve("report.csv");
+        Files.createDirectories(reportDirectory);
+        CoverageIndex index = new CoverageIndex(new CodeCoverageAgent(0.80), csvFile, List.of());
+
+        try (CoverageWatcher watcher = new CoverageWatcher(index)) {
+            Files.writeString(csvFile, HEADER + "test,com.example,BeforeClean,40,60,2,3,20,30,4,6,4,6\n");
+            awaitClass(index, "BeforeClean");
+
+            Files.delete(csvFile);
+            Files.delete(reportDirectory);
+            Files.delete(reportDirectory.getParent());
+            Thread.sleep(500);
+            Files.createDirectories(reportDirectory);
+            Files.writeString(csvFile, HEADER + "test,com.example,AfterClean,40,60,2,3,20,30,4,6,4,6\n");
+            awaitClass(index, "AfterClean");
+        }
+
+        assertTrue(index.findClass("AfterClean").isPresent());
+        assertTrue(index.findClass("BeforeClean").isEmpty());
+    }
+
+    private static void awaitClass(CoverageIndex index, String className) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (index.findClass(className).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.calculator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic JaCoCo CSV and XML reports for scaling tests.
+ *
+ * Reports are fully determined by the seed and settings, so a failing run can
+ * be reproduced exactly. Every class gets random counters; some can be given
+ * names that JaCoCo has to quote or escape, and some rows can be malformed in
+ * the ways the agent skips. The generator also returns the totals the agent
+ * should arrive at, so large reports can be checked without a second parser.
+ */
+class CoverageReportGenerator {
+
+    private static final String CSV_HEADER = "GROUP,PACKAGE,CLASS,INSTRUCTION_MISSED,INSTRUCTION_COVERED,"
+            + "BRANCH_MISSED,BRANCH_COVERED,LINE_MISSED,LINE_COVERED,COMPLEXITY_MISSED,COMPLEXITY_COVERED,"
+            + "METHOD_MISSED,METHOD_COVERED";
+    private static final String[] COUNTER_TYPES = {"INSTRUCTION", "BRANCH", "LINE", "COMPLEXITY", "METHOD"};
+    private static final int PACKAGE_FANOUT = 16;
+
+    /**
+     * What the agent should find in a generated report
+     */
+    static class Expected {
+        private long classes;
+        private long malformedRows;
+        private long belowThreshold;
+        private long instructionsMissed;
+        private long instructionsCovered;
+        private long bytes;
+
+        long getClasses() {
+            return classes;
+        }
+
+        long getMalformedRows() {
+            return malformedRows;
+        }
+
+        /**
+         * @return Classes whose instruction coverage is below the generator's threshold
+         */
+        long getBelowThreshold() {
+            return belowThreshold;
+        }
+
+        long getInstructionsMissed() {
+            return instructionsMissed;
+        }
+
+        long getInstructionsCovered() {
+            return instructionsCovered;
+        }
+
+        double getOverallCoverage() {
+            long total = instructionsMissed + instructionsCovered;
+            return total == 0 ? 0.0 : (double) instructionsCovered / total;
+        }
+
+        /**
+         * @return Size of the written report
+         */
+        long getBytes() {
+            return bytes;
+        }
+    }
+
+    private final long seed;
+    private int classes = 1000;
+    private int packageDepth = 3;
+    private int classesPerPackage = 50;
+    private double quotedNameRatio;
+    private double malformedRowRatio;
+    private double threshold = 0.80;
+
+    CoverageReportGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param classes Number of classes, including malformed rows
+     */
+    CoverageReportGenerator classes(int classes) {
+        this.classes = classes;
+        return this;
+    }
+
+    /**
+     * @param packageDepth Number of segments in each package name, at least 1
+     */
+    CoverageReportGenerator packageDepth(int packageDepth) {
+        this.packageDepth = Math.max(packageDepth, 1);
+        return this;
+    }
+
+    CoverageReportGenerator classesPerPackage(int classesPerPackage) {
+        this.classesPerPackage = Math.max(classesPerPackage, 1);
+        return this;
+    }
+
+    /**
+     * @param quotedNameRatio Share of classes whose name contains a comma and a quote
+     */
+    CoverageReportGenerator quotedNameRatio(double quotedNameRatio) {
+        this.quotedNameRatio = quotedNameRatio;
+        return this;
+    }
+
+    /**
+     * @param malformedRowRatio Share of rows that are truncated, non-numeric or blank
+     *                          (CSV), or that carry a non-numeric counter (XML)
+     */
+    CoverageReportGenerator malformedRowRatio(double malformedRowRatio) {
+        this.malformedRowRatio = malformedRowRatio;
+        return this;
+    }
+
+    /**
+     * @param threshold Threshold for {@link Expected#getBelowThreshold()}
+     */
+    CoverageReportGenerator threshold(double threshold) {
+        this.threshold = threshold;
+        return this;
+    }
+
+    /**
+     * Package of a class, e.g. {@code gen.n3.n10} for depth 3; every
+     * classesPerPackage consecutive classes share a package
+     */
+    private String packageName(int classIndex, char separator) {
+        int packageIndex = classIndex / classesPerPackage;
+        StringBuilder name = new StringBuilder("gen");
+        int divisor = 1;
+        for (int level = 2; level < packageDepth; level++) {
+            divisor *= PACKAGE_FANOUT;
+        }
+        for (int level = 1; level < packageDepth; level++) {
+            int segment = level == 1 ? packageIndex / divisor : packageIndex / divisor % PACKAGE_FANOUT;
+            name.append(separator).append('n').append(segment);
+            divisor = Math.max(divisor / PACKAGE_FANOUT, 1);
+        }
+        return name.toString();
+    }
+
+    private String className(int classIndex, SplittableRandom random) {
+        if (random.nextDouble() < quotedNameRatio) {
+            return "Quoted,\"Name\"" + classIndex;
+        }
+        return "Class" + classIndex;
+    }
+
+    /**
+     * Counters of one class in CSV column order: missed and covered for each counter type
+     */
+    private static int[] counters(SplittableRandom random) {
+        int methods = 1 + random.nextInt(20);
+        int methodsCovered = random.nextInt(methods + 1);
+        int lines = methods * (1 + random.nextInt(10));
+        int linesCovered = random.nextInt(lines + 1);
+        int instructions = lines * (2 + random.nextInt(4));
+        int instructionsCovered = random.nextInt(instructions + 1);
+        int branches = 2 * random.nextInt(lines + 1);
+        int branchesCovered = random.nextInt(branches + 1);
+        int complexity = methods + branches / 2;
+        int complexityCovered = random.nextInt(complexity + 1);
+        return new int[]{instructions - instructionsCovered, instructionsCovered,
+                branches - branchesCovered, branchesCovered, lines - linesCovered, linesCovered,
+                complexity - complexityCovered, complexityCovered, methods - methodsCovered, methodsCovered};
+    }
+
+    private void count(Expected expected, int instructionsMissed, int instructionsCovered) {
+        expected.classes++;
+        expected.instructionsMissed += instructionsMissed;
+        expected.instructionsCovered += instructionsCovered;
+        int total = instructionsMissed + instructionsCovered;
+        if ((total == 0 ? 0.0 : (double) instructionsCovered / total) < threshold) {
+            expected.belowThreshold++;
+        }
+    }
+
+    /**
+     * Write a report in the layout of JaCoCo's CSV formatter
+     */
+    Expected writeCsv(Path file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        Expected expected = new Expected();
+        try (Writer out = newWriter(file)) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+            StringBuilder row = new StringBuilder(128);
+            for (int i = 0; i < classes; i++) {
+                String className = className(i, random);
+                int[] counters = counters(random);
+                row.setLength(0);
+                row.append("app,").append(packageName(i, '.')).append(',').append(csvField(className));
+                for (int counter : counters) {
+                    row.append(',').append(counter);
+                }
+                if (random.nextDouble() < malformedRowRatio) {
+                    expected.malformedRows++;
+                    malform(row, random);
+                } else {
+                    count(expected, counters[0], counters[1]);
+                }
+                out.append(row).append('\n');
+            }
+        }
+        expected.bytes = Files.size(file);
+        return expected;
+    }
+
+    private static void malform(StringBuilder row, SplittableRandom random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                // Truncated, e.g. by an interrupted write
+                row.setLength(row.indexOf(",", row.indexOf(",") + 1));
+                break;
+            case 1:
+                row.replace(row.lastIndexOf(","), row.length(), ",n/a");
+                break;
+            default:
+                row.setLength(0);
+                break;
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Write a report in the layout of JaCoCo's XML formatter, with one method
+     * and a few lines per class
+     */
+    Expected writeXml(Path file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        Expected expected = new Expected();
+        try (Writer out = newWriter(file)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<!DOCTYPE report PUBLIC \"-//JACOCO//DTD Report 1.1//EN\" \"report.dtd\">"
+                    + "<report name=\"synthetic\">\n");
+            String currentPackage = null;
+            StringBuilder sourceFiles = new StringBuilder();
+            for (int i = 0; i < classes; i++) {
+                String packageName = packageName(i, '/');
+                if (!packageName.equals(currentPackage)) {
+                    if (currentPackage != null) {
+                        out.append(sourceFiles).write("</package>\n");
+                        sourceFiles.setLength(0);
+                    }
+                    currentPackage = packageName;
+                    out.write("<package name=\"" + packageName + "\">\n");
+                }
+                String className = className(i, random);
+                int[] counters = counters(random);
+                boolean malformed = random.nextDouble() < malformedRowRatio;
+                String sourceFile = xmlAttribute(className) + ".java";
+                out.write("<class name=\"" + packageName + "/" + xmlAttribute(className)
+                        + "\" sourcefilename=\"" + sourceFile + "\">");
+                out.write("<method name=\"run\" desc=\"()V\" line=\"3\">");
+                writeXmlCounters(out, counters, false);
+                out.write("</method>");
+                writeXmlCounters(out, counters, malformed);
+                out.write("</class>\n");
+                if (malformed) {
+                    // A non-numeric count is read as 0
+                    expected.malformedRows++;
+                    count(expected, counters[0], 0);
+                } else {
+                    count(expected, counters[0], counters[1]);
+                }
+                sourceFiles.append("<sourcefile name=\"").append(sourceFile).append("\">")
+                        .append("<line nr=\"3\" mi=\"0\" ci=\"2\" mb=\"1\" cb=\"1\"/>")
+                        .append("<line nr=\"4\" mi=\"3\" ci=\"0\" mb=\"0\" cb=\"0\"/>")
+                        .append("</sourcefile>\n");
+            }
+            if (currentPackage != null) {
+                out.append(sourceFiles).write("</package>\n");
+            }
+            out.write("</report>\n");
+        }
+        expected.bytes = Files.size(file);
+        return expected;
+    }
+
+    private static void writeXmlCounters(Writer out, int[] counters, boolean malformed) throws IOException {
+        for (int c = 0; c < COUNTER_TYPES.length; c++) {
+            out.write("<counter type=\"" + COUNTER_TYPES[c] + "\" missed=\"" + counters[2 * c]
+                    + "\" covered=\"" + (malformed && c == 0 ? "n/a" : String.valueOf(counters[2 * c + 1])) + "\"/>");
+        }
+    }
+
+    private static String xmlAttribute(String value) {
+        return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;");
+    }
+
+    private static Writer newWriter(Path file) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16);
+    }
+}
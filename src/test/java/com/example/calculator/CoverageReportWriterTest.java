@@ -0,0 +1,181 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the CoverageReportWriter implementations
+ */
+class CoverageReportWriterTest {
+
+    private static final CodeCoverageAgent.CoverageData LOW =
+            new CodeCoverageAgent.CoverageData("Low\"Class", 40, 60, 20, 30, 4, 6);
+    private static final CodeCoverageAgent.CoverageData HIGH =
+            new CodeCoverageAgent.CoverageData("HighClass", 10, 90, 5, 45, 1, 9);
+
+    private String write(ReportFormat format, CoverageDiff diff, boolean reportChanges) throws IOException {
+        StringWriter out = new StringWriter();
+        CoverageReportWriter writer = format.newWriter(out);
+        writer.begin(0.80);
+        writer.warning("cache <unavailable>");
+        writer.classResult(LOW, null, true, List.of("Add tests for 4 untested method(s)"));
+        writer.classResult(HIGH, null, false, List.of());
+        if (reportChanges) {
+            writer.changes(diff);
+        }
+        writer.end(new CoverageReportWriter.Summary(0.80, 0.75, 2, 1));
+        return out.toString();
+    }
+
+    @Test
+    void testTextFormat() throws IOException {
+        String report = write(ReportFormat.TEXT, null, true);
+
+        assertTrue(report.startsWith("=== Code Coverage Analysis Report ==="));
+        assertTrue(report.contains("Coverage Threshold: 80.00%"));
+        assertTrue(report.contains("Warning: cache <unavailable>"));
+        assertTrue(report.contains("Class: Low\"Class - Coverage: 60.00%\n  - Add tests for 4 untested method(s)\n"));
+        assertFalse(report.contains("HighClass"));
+        assertTrue(report.contains("Overall Coverage: 75.00%"));
+        assertTrue(report.contains("- Classes meeting threshold: 1"));
+        assertTrue(report.contains("No baseline found"));
+    }
+
+    @Test
+    void testTextFormatAllClassesMeetThreshold() throws IOException {
+        StringWriter out = new StringWriter();
+        CoverageReportWriter writer = ReportFormat.TEXT.newWriter(out);
+        writer.begin(0.80);
+        writer.classResult(HIGH, null, false, List.of());
+        writer.end(new CoverageReportWriter.Summary(0.80, 0.90, 1, 0));
+
+        assertTrue(out.toString().contains("All classes meet the coverage threshold!"));
+        assertFalse(out.toString().contains("Changes since last run"));
+    }
+
+    @Test
+    void testJsonFormat() throws IOException {
+        CoverageDiff diff = CoverageDiff.compare(Map.of("a.Low\"Class", HIGH), Map.of("a.Low\"Class", LOW), 0.80);
+
+        String report = write(ReportFormat.JSON, diff, true);
+
+        assertTrue(report.startsWith("{\"coverageThreshold\":0.8000,\"classes\":["));
+        assertTrue(report.contains("\"className\":\"Low\\\"Class\""));
+        assertTrue(report.contains("\"recommendations\":[\"Add tests for 4 untested method(s)\"]"));
+        assertFalse(report.contains("HighClass"));
+        assertTrue(report.contains("\"dropped\":[\"Low\\\"Class\"]"));
+        assertTrue(report.contains("\"warnings\":[\"cache <unavailable>\"]"));
+        assertTrue(report.contains("\"summary\":{\"overallCoverage\":0.7500,\"totalClasses\":2"));
+        assertTrue(report.trim().endsWith("}}"));
+    }
+
+    @Test
+    void testJsonFormatWithProfile() throws IOException {
+        AnalysisProfile profile = new AnalysisProfile();
+        profile.startRow();
+        profile.addBytes(1234);
+        StringWriter out = new StringWriter();
+        CoverageReportWriter writer = ReportFormat.JSON.newWriter(out);
+        writer.begin(0.80);
+        writer.end(new CoverageReportWriter.Summary(0.80, new PackageCoverageTree(), 0, 0, profile));
+
+        String report = out.toString();
+        assertTrue(report.contains(",\"profile\":{\"elapsedNanos\":"));
+        assertTrue(report.contains("\"rows\":1,\"bytes\":1234,"));
+        assertTrue(report.contains("{\"name\":\"read input\",\"nanos\":"));
+        assertTrue(report.trim().endsWith("]}}"));
+    }
+
+    @Test
+    void testJsonFormatWithoutChanges() throws IOException {
+        String report = write(ReportFormat.JSON, null, false);
+
+        assertFalse(report.contains("\"changes\""));
+        assertTrue(report.contains("\n],\"warnings\""));
+    }
+
+    @Test
+    void testJUnitFormat() throws IOException {
+        String report = write(ReportFormat.JUNIT, null, true);
+
+        assertTrue(report.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
+        assertTrue(report.contains("<testcase classname=\"Low&quot;Class\" name=\"instruction coverage\">"));
+        assertTrue(report.contains("<failure type=\"coverage\" message=\"Coverage 60.00% is below threshold 80.00%\">"));
+        assertTrue(report.contains("<testcase classname=\"HighClass\" name=\"instruction coverage\"/>"));
+        assertTrue(report.contains("<system-err>cache &lt;unavailable&gt;</system-err>"));
+        assertTrue(report.trim().endsWith("</testsuites>"));
+    }
+
+    @Test
+    void testSarifFormat() throws IOException {
+        String report = write(ReportFormat.SARIF, null, true);
+
+        assertTrue(report.contains("\"version\":\"2.1.0\""));
+        assertTrue(report.contains("\"ruleId\":\"" + SarifReportWriter.RULE_ID + "\""));
+        assertTrue(report.contains("\"fullyQualifiedName\":\"Low\\\"Class\""));
+        assertFalse(report.contains("HighClass"));
+        assertFalse(report.contains("physicalLocation"));
+        assertTrue(report.contains("\"toolExecutionNotifications\":[{\"level\":\"warning\""));
+    }
+
+    @Test
+    void testSarifLocationsResolveAgainstProjectRoot(@TempDir Path tempDir) throws IOException {
+        ClassCoverageDetail detail = new JacocoXmlReportParser().parse(Files.writeString(
+                tempDir.resolve("report.xml"), JacocoXmlReportParserTest.SAMPLE_REPORT)).get(0);
+        StringWriter out = new StringWriter();
+        CoverageReportWriter writer = new SarifReportWriter(out, tempDir, "src/main/java");
+        writer.begin(0.80);
+        writer.classResult(detail.toCoverageData(), detail, true, List.of());
+        writer.end(new CoverageReportWriter.Summary(0.80, 0.37, 1, 1));
+
+        String report = out.toString();
+        assertTrue(report.contains("\"artifactLocation\":{\"uri\":\"src/main/java/com/example/calculator/"
+                + "CalculatorService.java\",\"uriBaseId\":\"%SRCROOT%\"}"));
+        assertTrue(report.contains("\"originalUriBaseIds\":{\"%SRCROOT%\":{\"uri\":\""
+                + tempDir.toUri() + "\"}}"));
+    }
+
+    @Test
+    void testMachineReadableFormatsUseQualifiedNamesForCsvInput() throws IOException {
+        CodeCoverageAgent.CoverageData data =
+                new CodeCoverageAgent.CoverageData("com.example", "Outer.Inner", 40, 60, 0, 0, 20, 30, 0, 0, 4, 6);
+        Map<ReportFormat, String> expected = Map.of(
+                ReportFormat.JSON, "\"qualifiedName\":\"com.example.Outer.Inner\"",
+                ReportFormat.JUNIT, "<testcase classname=\"com.example.Outer.Inner\"",
+                ReportFormat.SARIF, "\"fullyQualifiedName\":\"com.example.Outer.Inner\"");
+
+        for (Map.Entry<ReportFormat, String> format : expected.entrySet()) {
+            StringWriter out = new StringWriter();
+            CoverageReportWriter writer = format.getKey().newWriter(out);
+            writer.begin(0.80);
+            writer.classResult(data, null, true, List.of());
+            writer.end(new CoverageReportWriter.Summary(0.80, 0.60, 1, 1));
+
+            assertTrue(out.toString().contains(format.getValue()), format.getKey().name());
+        }
+    }
+
+    @Test
+    void testOnlyJUnitWritesClassesMeetingThreshold() {
+        for (ReportFormat format : ReportFormat.values()) {
+            assertEquals(format == ReportFormat.JUNIT,
+                    format.newWriter(new StringWriter()).writesClassesMeetingThreshold(), format.name());
+        }
+    }
+
+    @Test
+    void testFormatFromName() {
+        assertEquals(ReportFormat.SARIF, ReportFormat.fromName("sarif"));
+        assertEquals(ReportFormat.JUNIT, ReportFormat.fromName(" JUnit "));
+        assertThrows(IllegalArgumentException.class, () -> ReportFormat.fromName("html"));
+    }
+}
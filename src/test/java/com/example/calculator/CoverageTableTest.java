@@ -0,0 +1,149 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CoverageTable
+ */
+class CoverageTableTest {
+
+    private static CodeCoverageAgent.CoverageData data(String className, int instructionsMissed,
+                                                       int instructionsCovered, int linesMissed, int methodsMissed) {
+        return new CodeCoverageAgent.CoverageData("com.example", className, instructionsMissed, instructionsCovered,
+                1, 2, linesMissed, 10, 3, 4, methodsMissed, 5);
+    }
+
+    @Test
+    void testRowViewHasAllCounters() {
+        CoverageTable table = new CoverageTable(1);
+        table.add(data("First", 1, 2, 3, 4));
+        int row = table.add(new CodeCoverageAgent.CoverageData("org.other", "Second",
+                10, 20, 30, 40, 50, 60, 70, 80, 90, 100));
+
+        assertEquals(1, row);
+        assertEquals(2, table.size());
+        assertEquals(2, table.getDistinctPackageCount());
+        CodeCoverageAgent.CoverageData view = table.get(row);
+        assertEquals("org.other.Second", view.getQualifiedName());
+        assertEquals(10, view.getInstructionsMissed());
+        assertEquals(40, view.getBranchesCovered());
+        assertEquals(50, view.getLinesMissed());
+        assertEquals(80, view.getComplexityCovered());
+        assertEquals(100, view.getMethodsCovered());
+        assertEquals(30, table.getMissed(CoverageTable.Counter.BRANCH, row));
+        assertEquals(80.0 / 150, table.getCoverage(CoverageTable.Counter.COMPLEXITY, row), 0.0001);
+        assertThrows(IndexOutOfBoundsException.class, () -> table.get(2));
+    }
+
+    @Test
+    void testSetReplacesRow() {
+        CoverageTable table = new CoverageTable();
+        table.add(data("Replaced", 50, 50, 1, 1));
+
+        table.set(0, data("Replaced", 0, 100, 0, 0));
+
+        assertEquals(1, table.size());
+        assertEquals(1.0, table.getCoverage(CoverageTable.Counter.INSTRUCTION, 0));
+    }
+
+    @Test
+    void testSumsAndOverallCoverage() {
+        CoverageTable table = CoverageTable.of(List.of(
+                data("A", 10, 90, 0, 0),
+                data("B", 30, 70, 0, 0)));
+
+        assertEquals(40, table.sumMissed(CoverageTable.Counter.INSTRUCTION));
+        assertEquals(160, table.sumCovered(CoverageTable.Counter.INSTRUCTION));
+        assertEquals(0.80, table.getOverallCoverage(CoverageTable.Counter.INSTRUCTION), 0.0001);
+        assertEquals(4, table.sumCovered(CoverageTable.Counter.BRANCH));
+        assertEquals(0.0, new CoverageTable().getOverallCoverage(CoverageTable.Counter.LINE));
+    }
+
+    @Test
+    void testRowsBelowThresholdMatchesCoverageData() {
+        List<CodeCoverageAgent.CoverageData> classes = List.of(
+                data("Covered", 10, 90, 0, 0),
+                data("Low", 40, 60, 0, 0),
+                data("Empty", 0, 0, 0, 0));
+        CoverageTable table = CoverageTable.of(classes);
+
+        assertArrayEquals(new int[]{1, 2}, table.rowsBelowThreshold(0.80));
+        assertArrayEquals(new int[]{}, table.rowsBelowThreshold(0.0));
+    }
+
+    @Test
+    void testTopRowsMatchesOffenderRankingComparator() {
+        Random random = new Random(42);
+        List<CodeCoverageAgent.CoverageData> classes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            classes.add(data("Class" + random.nextInt(100), random.nextInt(20), random.nextInt(20),
+                    random.nextInt(5), random.nextInt(5)));
+        }
+        CoverageTable table = CoverageTable.of(classes);
+        int[] allRows = new int[table.size()];
+        for (int row = 0; row < allRows.length; row++) {
+            allRows[row] = row;
+        }
+
+        for (OffenderRanking ranking : OffenderRanking.values()) {
+            List<CodeCoverageAgent.CoverageData> expected = new ArrayList<>(classes);
+            expected.sort(ranking.comparator());
+            List<CodeCoverageAgent.CoverageData> actual = table.get(table.topRows(allRows, ranking, 25));
+
+            assertEquals(25, actual.size());
+            for (int i = 0; i < actual.size(); i++) {
+                assertEquals(0, ranking.comparator().compare(expected.get(i), actual.get(i)), ranking + " at " + i);
+            }
+        }
+    }
+
+    @Test
+    void testTopRowsWithFewerCandidatesThanLimit() {
+        CoverageTable table = CoverageTable.of(List.of(
+                data("A", 1, 9, 0, 0),
+                data("B", 9, 1, 0, 0)));
+
+        assertArrayEquals(new int[]{1, 0}, table.topRows(new int[]{0, 1}, OffenderRanking.COVERAGE_RATIO, 10));
+        assertArrayEquals(new int[]{}, table.topRows(new int[]{}, OffenderRanking.COVERAGE_RATIO, 10));
+        assertThrows(IllegalArgumentException.class, () -> table.topRows(new int[]{0}, OffenderRanking.COVERAGE_RATIO, 0));
+    }
+
+    @Test
+    void testFindRowByClassName() {
+        CoverageTable table = CoverageTable.of(List.of(
+                data("A", 1, 9, 0, 0),
+                data("B", 9, 1, 0, 0),
+                new CodeCoverageAgent.CoverageData("org.other", "A", 5, 5, 0, 0, 0, 0, 0, 0, 0, 0)));
+
+        assertEquals(0, table.findRow("A"));
+        assertEquals(1, table.findRow("B"));
+        assertEquals(-1, table.findRow("Missing"));
+
+        table.set(0, data("C", 1, 9, 0, 0));
+
+        assertEquals(2, table.findRow("A"));
+        assertEquals(0, table.findRow("C"));
+    }
+
+    @Test
+    void testTiesAreBrokenByQualifiedName() {
+        CodeCoverageAgent.CoverageData first = new CodeCoverageAgent.CoverageData("org.b", "Same",
+                5, 5, 0, 0, 0, 0, 0, 0, 0, 0);
+        CodeCoverageAgent.CoverageData second = new CodeCoverageAgent.CoverageData("org.a", "Same",
+                5, 5, 0, 0, 0, 0, 0, 0, 0, 0);
+
+        for (OffenderRanking ranking : OffenderRanking.values()) {
+            assertTrue(ranking.comparator().compare(second, first) < 0, ranking.name());
+            assertArrayEquals(new int[]{1, 0}, CoverageTable.of(List.of(first, second))
+                    .topRows(new int[]{0, 1}, ranking, 2), ranking.name());
+            assertArrayEquals(new int[]{0, 1}, CoverageTable.of(List.of(second, first))
+                    .topRows(new int[]{0, 1}, ranking, 2), ranking.name());
+        }
+    }
+}
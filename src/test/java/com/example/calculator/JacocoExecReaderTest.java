@@ -0,0 +1,98 @@
+package com.example.calculator;
+
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for JacocoExecReader
+ */
+class JacocoExecReaderTest {
+
+    @Test
+    void testReadWithoutExecutionData(@TempDir Path tempDir) throws IOException {
+        Path execFile = writeEmptyExecutionData(tempDir);
+        Path classesDir = copyServiceClass(tempDir);
+
+        List<ClassCoverageDetail> details = new JacocoExecReader(List.of(classesDir)).read(execFile);
+
+        assertEquals(1, details.size());
+        ClassCoverageDetail service = details.get(0);
+        assertEquals("com/example/calculator/CalculatorService", service.getClassName());
+        assertEquals("CalculatorService.java", service.getSourceFileName());
+        assertEquals(0, service.getInstructions().getCovered());
+        assertTrue(service.getInstructions().getMissed() > 0);
+        assertEquals(5, service.getMethods().getMissed());
+        assertFalse(service.getUncoveredLines().isEmpty());
+        assertTrue(service.getMethodCoverage().stream()
+                .anyMatch(method -> method.getName().equals("divide") && method.isUntested()));
+    }
+
+    @Test
+    void testReadMissingExecutionData(@TempDir Path tempDir) {
+        JacocoExecReader reader = new JacocoExecReader(List.of(tempDir));
+
+        assertThrows(IOException.class, () -> reader.read(tempDir.resolve("missing.exec")));
+    }
+
+    @Test
+    void testAnalyzeAndReportWithExecutionData(@TempDir Path tempDir) throws IOException {
+        Path execFile = writeEmptyExecutionData(tempDir);
+        Path classesDir = copyServiceClass(tempDir);
+
+        String report = new CodeCoverageAgent(0.80).analyzeAndReport(execFile.toString(),
+                List.of(classesDir.toString()));
+
+        assertTrue(report.contains("Class: CalculatorService - Coverage: 0.00%"));
+        assertTrue(report.contains("Untested method: divide()"));
+    }
+
+    @Test
+    void testLoadCoverageHashesClassDirectories(@TempDir Path tempDir) throws IOException {
+        Path execFile = writeEmptyExecutionData(tempDir);
+        Path classesDir = copyServiceClass(tempDir);
+        CodeCoverageAgent agent = new CodeCoverageAgent(0.80);
+        List<String> classDirectories = List.of(classesDir.toString());
+
+        CoverageCache first = agent.loadCoverage(execFile.toString(), CoverageCache.empty(), classDirectories);
+        assertSame(first, agent.loadCoverage(execFile.toString(), first, classDirectories));
+        assertNotNull(first.getDetail(0));
+
+        // Recompiled classes change coverage even when the execution data is the same
+        try (InputStream in = CalculatorController.class.getResourceAsStream("CalculatorController.class")) {
+            Files.copy(in, classesDir.resolve("CalculatorController.class"));
+        }
+        CoverageCache second = agent.loadCoverage(execFile.toString(), first, classDirectories);
+
+        assertNotSame(first, second);
+        assertEquals(2, second.size());
+    }
+
+    /**
+     * An execution data file with only a header means nothing was executed
+     */
+    private static Path writeEmptyExecutionData(Path tempDir) throws IOException {
+        Path execFile = tempDir.resolve("jacoco.exec");
+        try (OutputStream out = Files.newOutputStream(execFile)) {
+            new ExecutionDataWriter(out);
+        }
+        return execFile;
+    }
+
+    private static Path copyServiceClass(Path tempDir) throws IOException {
+        Path classesDir = Files.createDirectory(tempDir.resolve("classes"));
+        try (InputStream in = CalculatorService.class.getResourceAsStream("CalculatorService.class")) {
+            Files.copy(in, classesDir.resolve("CalculatorService.class"));
+        }
+        return classesDir;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for JacocoXmlReportParser
+ */
+class JacocoXmlReportParserTest {
+
+    static final String SAMPLE_REPORT = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <!DOCTYPE report PUBLIC "-//JACOCO//DTD Report 1.1//EN" "report.dtd">
+            <report name="calculator">
+              <sessioninfo id="session" start="1" dump="2"/>
+              <package name="com/example/calculator">
+                <class name="com/example/calculator/CalculatorService" sourcefilename="CalculatorService.java">
+                  <method name="&lt;init&gt;" desc="()V" line="6">
+                    <counter type="INSTRUCTION" missed="0" covered="3"/>
+                    <counter type="LINE" missed="0" covered="1"/>
+                    <counter type="METHOD" missed="0" covered="1"/>
+                  </method>
+                  <method name="add" desc="(DD)D" line="9">
+                    <counter type="INSTRUCTION" missed="0" covered="4"/>
+                    <counter type="BRANCH" missed="1" covered="1"/>
+                    <counter type="LINE" missed="0" covered="1"/>
+                    <counter type="METHOD" missed="0" covered="1"/>
+                  </method>
+                  <method name="divide" desc="(DD)D" line="21">
+                    <counter type="INSTRUCTION" missed="12" covered="0"/>
+                    <counter type="BRANCH" missed="2" covered="0"/>
+                    <counter type="LINE" missed="3" covered="0"/>
+                    <counter type="METHOD" missed="1" covered="0"/>
+                  </method>
+                  <counter type="INSTRUCTION" missed="12" covered="7"/>
+                  <counter type="BRANCH" missed="3" covered="1"/>
+                  <counter type="LINE" missed="3" covered="2"/>
+                  <counter type="COMPLEXITY" missed="2" covered="2"/>
+                  <counter type="METHOD" missed="1" covered="2"/>
+                  <counter type="CLASS" missed="0" covered="1"/>
+                </class>
+                <class name="com/example/calculator/CalculatorService$Helper" sourcefilename="CalculatorService.java">
+                  <method name="help" desc="()V" line="30">
+                    <counter type="INSTRUCTION" missed="2" covered="0"/>
+                    <counter type="LINE" missed="1" covered="0"/>
+                    <counter type="METHOD" missed="1" covered="0"/>
+                  </method>
+                  <counter type="INSTRUCTION" missed="2" covered="0"/>
+                  <counter type="LINE" missed="1" covered="0"/>
+                  <counter type="METHOD" missed="1" covered="0"/>
+                </class>
+                <sourcefile name="CalculatorService.java">
+                  <line nr="6" mi="0" ci="3" mb="0" cb="0"/>
+                  <line nr="9" mi="0" ci="4" mb="1" cb="1"/>
+                  <line nr="21" mi="5" ci="0" mb="2" cb="0"/>
+                  <line nr="22" mi="4" ci="0" mb="0" cb="0"/>
+                  <line nr="24" mi="3" ci="0" mb="0" cb="0"/>
+                  <line nr="30" mi="2" ci="0" mb="0" cb="0"/>
+                  <counter type="LINE" missed="4" covered="2"/>
+                </sourcefile>
+                <counter type="LINE" missed="4" covered="2"/>
+              </package>
+              <counter type="LINE" missed="4" covered="2"/>
+            </report>
+            """;
+
+    private final JacocoXmlReportParser parser = new JacocoXmlReportParser();
+
+    @Test
+    void testParseClassCounters(@TempDir Path tempDir) throws IOException {
+        Path xmlFile = tempDir.resolve("report.xml");
+        Files.writeString(xmlFile, SAMPLE_REPORT);
+
+        List<ClassCoverageDetail> details = parser.parse(xmlFile);
+
+        assertEquals(2, details.size());
+        ClassCoverageDetail service = details.get(0);
+        assertEquals("com/example/calculator", service.getPackageName());
+        assertEquals("com/example/calculator/CalculatorService", service.getClassName());
+        assertEquals("CalculatorService", service.getSimpleClassName());
+        assertEquals("CalculatorService.java", service.getSourceFileName());
+        assertEquals(12, service.getInstructions().getMissed());
+        assertEquals(7, service.getInstructions().getCovered());
+        assertEquals(3, service.getBranches().getMissed());
+        assertEquals(2, service.getComplexity().getCovered());
+        assertEquals(1, service.getMethods().getMissed());
+        assertEquals("CalculatorService.Helper", details.get(1).getSimpleClassName());
+    }
+
+    @Test
+    void testParseMethodsAndLines(@TempDir Path tempDir) throws IOException {
+        Path xmlFile = tempDir.resolve("report.xml");
+        Files.writeString(xmlFile, SAMPLE_REPORT);
+
+        List<ClassCoverageDetail> details = parser.parse(xmlFile);
+        ClassCoverageDetail service = details.get(0);
+
+        assertEquals(3, service.getMethodCoverage().size());
+        ClassCoverageDetail.MethodCoverage divide = service.getMethodCoverage().get(2);
+        assertEquals("divide", divide.getName());
+        assertEquals("(DD)D", divide.getDescriptor());
+        assertEquals(21, divide.getLine());
+        assertTrue(divide.isUntested());
+        assertFalse(service.getMethodCoverage().get(1).isUntested());
+
+        // Lines 21, 22 and 24 are consecutive lines of code, so they form one range
+        assertEquals(1, service.getUncoveredLines().size());
+        assertEquals("21-24", service.getUncoveredLines().get(0).toString());
+        assertEquals(List.of(9), service.getPartialBranchLines());
+
+        // Line 30 belongs to the inner class, not the outer one
+        ClassCoverageDetail helper = details.get(1);
+        assertEquals(1, helper.getUncoveredLines().size());
+        assertEquals("30", helper.getUncoveredLines().get(0).toString());
+    }
+
+    @Test
+    void testStreamingConsumer(@TempDir Path tempDir) throws IOException {
+        Path xmlFile = tempDir.resolve("report.xml");
+        Files.writeString(xmlFile, SAMPLE_REPORT);
+
+        List<String> names = new ArrayList<>();
+        parser.parse(xmlFile, detail -> names.add(detail.getSimpleClassName()));
+
+        assertEquals(List.of("CalculatorService", "CalculatorService.Helper"), names);
+    }
+
+    @Test
+    void testToCoverageData(@TempDir Path tempDir) throws IOException {
+        Path xmlFile = tempDir.resolve("report.xml");
+        Files.writeString(xmlFile, SAMPLE_REPORT);
+
+        CodeCoverageAgent.CoverageData data = parser.parse(xmlFile).get(0).toCoverageData();
+
+        assertEquals("CalculatorService", data.getClassName());
+        assertEquals(12, data.getInstructionsMissed());
+        assertEquals(3, data.getLinesMissed());
+        assertEquals(1, data.getMethodsMissed());
+    }
+
+    @Test
+    void testParseMalformedReport(@TempDir Path tempDir) throws IOException {
+        Path xmlFile = tempDir.resolve("broken.xml");
+        Files.writeString(xmlFile, "<report><package name=\"a\">");
+
+        assertThrows(IOException.class, () -> parser.parse(xmlFile));
+    }
+
+    @Test
+    void testParseMissingReport() {
+        assertThrows(IOException.class, () -> parser.parse(Path.of("/nonexistent/report.xml")));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PackageCoverageTree
+ */
+class PackageCoverageTreeTest {
+
+    private static CodeCoverageAgent.CoverageData data(String packageName, String className,
+                                                       int instructionsMissed, int instructionsCovered) {
+        return new CodeCoverageAgent.CoverageData(packageName, className, instructionsMissed, instructionsCovered,
+                1, 1, 1, 1);
+    }
+
+    @Test
+    void testRollupToAncestors() {
+        PackageCoverageTree tree = PackageCoverageTree.of(List.of(
+                data("com.example.a", "A1", 10, 90),
+                data("com.example.a", "A2", 30, 70),
+                data("com.example.b", "B1", 50, 50)));
+
+        PackageCoverageTree.Node a = tree.getPackage("com.example.a");
+        assertEquals(0.80, a.getInstructionCoverage(), 0.001);
+        assertEquals(2, a.getDirectClassCount());
+        assertEquals("a", a.getSimpleName());
+
+        PackageCoverageTree.Node example = tree.getPackage("com.example");
+        assertEquals(210, example.getInstructionsCovered());
+        assertEquals(3, example.getClassCount());
+        assertEquals(0, example.getDirectClassCount());
+        assertEquals(2, example.getChildren().size());
+        assertSame(example, a.getParent());
+
+        assertEquals(0.70, tree.getRoot().getInstructionCoverage(), 0.001);
+        assertEquals(3, tree.getRoot().getClassCount());
+        assertNull(tree.getPackage("org"));
+    }
+
+    @Test
+    void testRollupCoversAllCounters() {
+        PackageCoverageTree tree = new PackageCoverageTree();
+        CodeCoverageAgent.CoverageData before =
+                new CodeCoverageAgent.CoverageData("com.example", "A", 1, 9, 2, 6, 3, 7, 4, 4, 5, 5);
+        tree.add(before);
+        tree.add(new CodeCoverageAgent.CoverageData("com.example", "B", 1, 9, 2, 2, 3, 7, 0, 4, 5, 5));
+
+        PackageCoverageTree.Node root = tree.getRoot();
+        assertEquals(4, root.getBranchesMissed());
+        assertEquals(8, root.getBranchesCovered());
+        assertEquals(4, root.getComplexityMissed());
+        assertEquals(8, root.getComplexityCovered());
+        assertEquals(10, root.getMethodsCovered());
+        assertEquals(8.0 / 12, root.getBranchCoverage(), 0.001);
+        assertEquals(8.0 / 12, root.getCoverage(CoverageTable.Counter.COMPLEXITY), 0.001);
+
+        tree.update(before, new CodeCoverageAgent.CoverageData("com.example", "A", 1, 9, 0, 8, 3, 7, 0, 8, 5, 5));
+        assertEquals(2, tree.getPackage("com").getBranchesMissed());
+        assertEquals(0, tree.getPackage("com").getComplexityMissed());
+        assertEquals(12, root.getComplexityCovered());
+    }
+
+    @Test
+    void testUpdatePropagatesToRoot() {
+        PackageCoverageTree tree = new PackageCoverageTree();
+        CodeCoverageAgent.CoverageData before = data("com.example", "Service", 50, 50);
+        tree.add(before);
+        tree.add(data("com.other", "Other", 0, 100));
+
+        tree.update(before, data("com.example", "Service", 0, 100));
+
+        assertEquals(1.0, tree.getPackage("com.example").getInstructionCoverage(), 0.001);
+        assertEquals(1.0, tree.getPackage("com").getInstructionCoverage(), 0.001);
+        assertEquals(200, tree.getRoot().getInstructionsCovered());
+        assertEquals(2, tree.getRoot().getClassCount());
+    }
+
+    @Test
+    void testUpdateMovesClassBetweenPackages() {
+        PackageCoverageTree tree = new PackageCoverageTree();
+        CodeCoverageAgent.CoverageData before = data("com.old", "Moved", 10, 90);
+        tree.add(before);
+
+        tree.update(before, data("com.fresh", "Moved", 10, 90));
+
+        assertNull(tree.getPackage("com.old"));
+        assertEquals(1, tree.getPackage("com.fresh").getDirectClassCount());
+        assertEquals(1, tree.getPackage("com").getClassCount());
+    }
+
+    @Test
+    void testRemovePrunesEmptyPackages() {
+        PackageCoverageTree tree = new PackageCoverageTree();
+        CodeCoverageAgent.CoverageData removed = data("com.example.deep", "Gone", 10, 90);
+        tree.add(removed);
+        tree.add(data("com", "Kept", 0, 10));
+
+        assertTrue(tree.remove(removed));
+        assertFalse(tree.remove(removed));
+
+        assertNull(tree.getPackage("com.example.deep"));
+        assertNull(tree.getPackage("com.example"));
+        assertEquals(1, tree.getPackage("com").getClassCount());
+        assertTrue(tree.getPackage("com").getChildren().isEmpty());
+        assertEquals(10, tree.getRoot().getInstructionsCovered());
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        PackageCoverageTree tree = new PackageCoverageTree();
+        CodeCoverageAgent.CoverageData removed = data("com.example.deep", "Gone", 10, 90);
+        tree.add(removed);
+        tree.add(data("com.example", "Kept", 0, 10));
+
+        PackageCoverageTree copy = tree.copy();
+        copy.remove(removed);
+        copy.add(data("org", "New", 5, 5));
+
+        assertNull(copy.getPackage("com.example.deep"));
+        assertEquals(1, copy.getPackage("com").getClassCount());
+        assertEquals(15, copy.getRoot().getInstructionsCovered());
+        assertSame(copy.getRoot(), copy.getPackage("com").getParent());
+        assertEquals(2, tree.getPackage("com").getClassCount());
+        assertEquals(1, tree.getPackage("com.example.deep").getDirectClassCount());
+        assertEquals(100, tree.getRoot().getInstructionsCovered());
+        assertNull(tree.getPackage("org"));
+    }
+
+    @Test
+    void testPackagesBelowThreshold() {
+        PackageCoverageTree tree = PackageCoverageTree.of(List.of(
+                data("com.example.b", "Low", 60, 40),
+                data("com.example.a", "High", 5, 95),
+                data("", "DefaultPackage", 90, 10)));
+
+        List<PackageCoverageTree.Node> packages = tree.getPackages();
+        assertEquals(List.of("", "com.example.a", "com.example.b"),
+                packages.stream().map(PackageCoverageTree.Node::getName).toList());
+
+        List<PackageCoverageTree.Node> below = tree.getPackagesBelowThreshold(0.80);
+        assertEquals(List.of("", "com.example.b"),
+                below.stream().map(PackageCoverageTree.Node::getName).toList());
+    }
+
+    @Test
+    void testEmptyTree() {
+        PackageCoverageTree tree = new PackageCoverageTree();
+
+        assertEquals(0.0, tree.getRoot().getInstructionCoverage());
+        assertSame(tree.getRoot(), tree.getPackage(""));
+        assertTrue(tree.getPackages().isEmpty());
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for RecommendationRules
+ */
+class RecommendationRulesTest {
+
+    private static final String[] COUNTERS = {"instruction", "branch", "line", "method", "complexity"};
+    private static final String[] WORDS = {"Response", "Controller", "Service", "Repository", "Impl", "Abstract",
+            "Default", "Config", "Handler", "Mapper", "Util", "Factory"};
+
+    private static RecommendationRules parse(String rules) throws IOException {
+        return RecommendationRules.parse("test-rules", new StringReader(rules));
+    }
+
+    private static CodeCoverageAgent.CoverageData data(String packageName, String className,
+                                                       int instructionsCovered, int branchesCovered, int linesCovered) {
+        // Ten items of each counter, so the covered counts are tenths of coverage
+        return new CodeCoverageAgent.CoverageData(packageName, className,
+                10 - instructionsCovered, instructionsCovered, 10 - branchesCovered, branchesCovered,
+                10 - linesCovered, linesCovered, 5, 5, 5, 5);
+    }
+
+    private static CodeCoverageAgent.CoverageData data(String packageName, String className) {
+        return data(packageName, className, 5, 5, 5);
+    }
+
+    @Test
+    void testDefaultRulesApplyFirstMatchingKindOfClass() {
+        RecommendationRules rules = RecommendationRules.defaults();
+
+        assertEquals(4, rules.size());
+        assertEquals(List.of("Add tests for getter and setter methods", "Test both constructors"),
+                rules.recommend(data("com.example", "CalculatorResponse")));
+        assertEquals(List.of("Add tests for all REST endpoints", "Test error handling scenarios"),
+                rules.recommend(data("com.example", "CalculatorController")));
+        assertEquals(List.of("Add tests for getter and setter methods", "Test both constructors"),
+                rules.recommend(data("com.example", "ResponseController")));
+        assertEquals(List.of("Test all business logic methods", "Test edge cases and error conditions"),
+                rules.recommend(data("com.example", "ServiceImpl")));
+        assertTrue(rules.recommend(data("com.example", "Calculator")).isEmpty());
+    }
+
+    @Test
+    void testClassMatchers() throws IOException {
+        RecommendationRules rules = parse("""
+                * name:Foo             : name
+                * prefix:Abstract      : prefix
+                * suffix:Impl          : suffix
+                * contains:Cache       : contains
+                * regex:[A-Z]+Dto\\d*   : regex
+                * *                    : any
+                """);
+
+        assertEquals(List.of("name", "any"), rules.recommend(data("p", "Foo")));
+        assertEquals(List.of("any"), rules.recommend(data("p", "FooBar")));
+        assertEquals(List.of("prefix", "suffix", "any"), rules.recommend(data("p", "AbstractImpl")));
+        assertEquals(List.of("any"), rules.recommend(data("p", "ImplAbstract")));
+        assertEquals(List.of("contains", "any"), rules.recommend(data("p", "LruCacheEntry")));
+        assertEquals(List.of("regex", "any"), rules.recommend(data("p", "USERDto2")));
+        assertEquals(List.of("any"), rules.recommend(data("p", "UserDto")));
+    }
+
+    @Test
+    void testPackagePatterns() throws IOException {
+        RecommendationRules rules = parse("""
+                com.example         * : exact
+                com.example.api.**  * : tree
+                com.example.apiv2   * : sibling
+                *                   * : any
+                """);
+
+        assertEquals(List.of("exact", "any"), rules.recommend(data("com.example", "Foo")));
+        assertEquals(List.of("tree", "any"), rules.recommend(data("com.example.api", "Foo")));
+        assertEquals(List.of("tree", "any"), rules.recommend(data("com.example.api.v1.dto", "Foo")));
+        assertEquals(List.of("sibling", "any"), rules.recommend(data("com.example.apiv2", "Foo")));
+        assertEquals(List.of("any"), rules.recommend(data("", "Foo")));
+    }
+
+    @Test
+    void testCounterConditions() throws IOException {
+        RecommendationRules rules = parse("""
+                * * instruction<0.50             : low instructions
+                * * branch>=0.80                 : good branches
+                * * line>=0.30 line<0.60         : middling lines
+                * * method<0.6 complexity<0.6    : low methods and complexity
+                """);
+
+        assertEquals(List.of("low instructions", "low methods and complexity"),
+                rules.recommend(data("p", "Foo", 4, 7, 6)));
+        assertEquals(List.of("good branches", "middling lines", "low methods and complexity"),
+                rules.recommend(data("p", "Foo", 5, 8, 3)));
+        assertEquals(List.of("low methods and complexity"), rules.recommend(data("p", "Foo", 9, 2, 2)));
+
+        // A class without branches has no branch coverage to judge
+        CodeCoverageAgent.CoverageData noBranches = new CodeCoverageAgent.CoverageData("p", "Foo",
+                9, 1, 0, 0, 5, 5, 1, 9, 1, 9);
+        assertEquals(List.of("low instructions", "middling lines"), rules.recommend(noBranches));
+    }
+
+    @Test
+    void testStopSkipsLaterRules() throws IOException {
+        RecommendationRules rules = parse("""
+                * *              : first
+                * suffix:Dao stop : dao
+                * *              : last
+                """);
+
+        assertEquals(List.of("first", "dao"), rules.recommend(data("p", "UserDao")));
+        assertEquals(List.of("first", "last"), rules.recommend(data("p", "User")));
+    }
+
+    @Test
+    void testPlaceholders() throws IOException {
+        RecommendationRules rules = parse(
+                "* * : Cover {branch.missed} of {branch.covered} branches in {package}.{class} ({line.coverage})\n");
+
+        assertEquals(List.of(String.format("Cover 7 of 3 branches in p.Foo (%.2f%%)", 60.0)),
+                rules.recommend(data("p", "Foo", 5, 3, 6)));
+    }
+
+    @Test
+    void testInvalidRulesNameTheLine() {
+        String[] invalid = {
+                "* suffix:Foo",
+                "* foo:Bar : text",
+                "com..example * : text",
+                "* * branch<2 : text",
+                "* * branches<0.5 : text",
+                "* regex:[ : text",
+                "* * : {methods.missed}",
+                "* * : |"
+        };
+        for (String rule : invalid) {
+            IOException e = assertThrows(IOException.class, () -> parse("# comment\n\n" + rule + "\n"), rule);
+            assertTrue(e.getMessage().contains("test-rules:3:"), e.getMessage());
+        }
+    }
+
+    @Test
+    void testAgentUsesRulesFromFile(@TempDir Path tempDir) throws IOException {
+        Path rulesFile = tempDir.resolve("rules.txt");
+        Files.writeString(rulesFile, "com.example.** suffix:Controller method<0.80 : Test every endpoint of {class}\n");
+        CodeCoverageAgent agent = new CodeCoverageAgent(0.80, null, OffenderRanking.MISSED_INSTRUCTIONS, 0,
+                RecommendationRules.load(rulesFile));
+
+        List<String> items = agent.recommendationItems(new CodeCoverageAgent.CoverageData("com.example.web",
+                "OrderController", 30, 50, 0, 0, 15, 25, 1, 1, 5, 5), null);
+
+        assertEquals(List.of("Add tests for 5 untested method(s)", "Cover 15 untested line(s)",
+                "Test every endpoint of OrderController"), items);
+    }
+
+    /**
+     * Rules as written and as a reference evaluation that checks every rule one by one
+     */
+    private static class RandomRules {
+        private final StringBuilder text = new StringBuilder();
+        private final List<String[]> rules = new ArrayList<>();
+
+        RandomRules(SplittableRandom random, int count) {
+            for (int i = 0; i < count; i++) {
+                String packagePattern = switch (random.nextInt(4)) {
+                    case 0 -> "*";
+                    case 1 -> "gen.n" + random.nextInt(4);
+                    default -> "gen.n" + random.nextInt(4) + ".**";
+                };
+                String word = WORDS[random.nextInt(WORDS.length)];
+                String matcher = switch (random.nextInt(6)) {
+                    case 0 -> "*";
+                    case 1 -> "prefix:" + word;
+                    case 2 -> "suffix:" + word;
+                    case 3 -> "contains:" + word;
+                    case 4 -> "name:" + word + WORDS[random.nextInt(WORDS.length)];
+                    default -> "regex:.*" + word + "[0-9]+";
+                };
+                String condition = random.nextBoolean()
+                        ? COUNTERS[random.nextInt(COUNTERS.length)] + (random.nextBoolean() ? "<" : ">=")
+                                + random.nextInt(11) / 10.0
+                        : "";
+                boolean stop = random.nextInt(20) == 0;
+                text.append(packagePattern).append(' ').append(matcher).append(' ').append(condition)
+                        .append(stop ? " stop" : "").append(" : rule ").append(i).append('\n');
+                rules.add(new String[]{packagePattern, matcher, condition, String.valueOf(stop), "rule " + i});
+            }
+        }
+
+        List<String> recommend(CodeCoverageAgent.CoverageData data) {
+            List<String> items = new ArrayList<>();
+            for (String[] rule : rules) {
+                if (packageMatches(rule[0], data.getPackageName()) && classMatches(rule[1], data.getClassName())
+                        && conditionHolds(rule[2], data)) {
+                    items.add(rule[4]);
+                    if (Boolean.parseBoolean(rule[3])) {
+                        break;
+                    }
+                }
+            }
+            return items;
+        }
+
+        private static boolean packageMatches(String pattern, String packageName) {
+            if (pattern.equals("*")) {
+                return true;
+            }
+            if (pattern.endsWith(".**")) {
+                String root = pattern.substring(0, pattern.length() - 3);
+                return packageName.equals(root) || packageName.startsWith(root + ".");
+            }
+            return packageName.equals(pattern);
+        }
+
+        private static boolean classMatches(String matcher, String className) {
+            String value = matcher.substring(matcher.indexOf(':') + 1);
+            if (matcher.equals("*")) {
+                return true;
+            } else if (matcher.startsWith("prefix:")) {
+                return className.startsWith(value);
+            } else if (matcher.startsWith("suffix:")) {
+                return className.endsWith(value);
+            } else if (matcher.startsWith("contains:")) {
+                return className.contains(value);
+            } else if (matcher.startsWith("name:")) {
+                return className.equals(value);
+            }
+            return className.matches(value);
+        }
+
+        private static boolean conditionHolds(String condition, CodeCoverageAgent.CoverageData data) {
+            if (condition.isEmpty()) {
+                return true;
+            }
+            boolean below = condition.contains("<");
+            String counter = condition.substring(0, condition.indexOf(below ? '<' : '>'));
+            double value = Double.parseDouble(condition.substring(condition.indexOf(below ? '<' : '=') + 1));
+            int[] counts = switch (counter) {
+                case "instruction" -> new int[]{data.getInstructionsMissed(), data.getInstructionsCovered()};
+                case "branch" -> new int[]{data.getBranchesMissed(), data.getBranchesCovered()};
+                case "line" -> new int[]{data.getLinesMissed(), data.getLinesCovered()};
+                case "method" -> new int[]{data.getMethodsMissed(), data.getMethodsCovered()};
+                default -> new int[]{data.getComplexityMissed(), data.getComplexityCovered()};
+            };
+            int total = counts[0] + counts[1];
+            if (total == 0) {
+                return false;
+            }
+            double ratio = (double) counts[1] / total;
+            return below ? ratio < value : ratio >= value;
+        }
+    }
+
+    private static CodeCoverageAgent.CoverageData randomClass(SplittableRandom random) {
+        String packageName = "gen.n" + random.nextInt(4) + (random.nextBoolean() ? ".n" + random.nextInt(4) : "");
+        String className = WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)]
+                + (random.nextBoolean() ? String.valueOf(random.nextInt(100)) : "");
+        int[] counts = new int[10];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = random.nextInt(6);
+        }
+        return new CodeCoverageAgent.CoverageData(packageName, className, counts[0], counts[1], counts[2], counts[3],
+                counts[4], counts[5], counts[6], counts[7], counts[8], counts[9]);
+    }
+
+    @Test
+    void testCompiledRulesAgreeWithRuleByRuleEvaluation() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        RandomRules reference = new RandomRules(random, 300);
+        RecommendationRules rules = parse(reference.text.toString());
+
+        assertEquals(300, rules.size());
+        for (int i = 0; i < 5000; i++) {
+            CodeCoverageAgent.CoverageData data = randomClass(random);
+            assertEquals(reference.recommend(data), rules.recommend(data), data.getQualifiedName());
+        }
+    }
+
+    @Test
+    @Tag("scaling")
+    void testEvaluationCostStaysFlatAsRulesGrow() throws IOException {
+        SplittableRandom random = new SplittableRandom(7);
+        List<CodeCoverageAgent.CoverageData> classes = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            classes.add(randomClass(random));
+        }
+        // Rules that hardly ever apply, so that the cost of matching is not hidden by the recommendations
+        StringBuilder few = new StringBuilder();
+        StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String rule = "gen.n" + i + ".** suffix:" + WORDS[i % WORDS.length] + i
+                    + " line<0." + (1 + i % 9) + " branch>=0.0" + i % 10 + " : rule " + i + "\n";
+            if (i < 10) {
+                few.append(rule);
+            }
+            many.append(rule);
+        }
+        RecommendationRules tenRules = parse(few.toString());
+        RecommendationRules thousandRules = parse(many.toString());
+
+        long tenNanos = bestEvaluationNanos(tenRules, classes);
+        long thousandNanos = bestEvaluationNanos(thousandRules, classes);
+
+        // Checking the rules one by one would take about a hundred times longer
+        assertTrue(thousandNanos < 10 * tenNanos, "10 rules: " + tenNanos + " ns, 1000 rules: " + thousandNanos + " ns");
+    }
+
+    private static long bestEvaluationNanos(RecommendationRules rules, List<CodeCoverageAgent.CoverageData> classes) {
+        long best = Long.MAX_VALUE;
+        int items = 0;
+        for (int attempt = 0; attempt < 10; attempt++) {
+            long start = System.nanoTime();
+            for (CodeCoverageAgent.CoverageData data : classes) {
+                items += rules.recommend(data).size();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertTrue(items >= 0);
+        return best;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.calculator;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for TestImpactIndex
+ */
+class TestImpactIndexTest {
+
+    private static void writeSession(ExecutionDataWriter writer, String test, long start, long dump,
+                                     String... executedClasses) {
+        writer.visitSessionInfo(new SessionInfo(test, start, dump));
+        long id = 1;
+        for (String className : executedClasses) {
+            writer.visitClassExecution(new ExecutionData(id++, className, new boolean[]{false, true}));
+        }
+        writer.visitClassExecution(new ExecutionData(id, "com/example/NeverRun", new boolean[]{false, false}));
+    }
+
+    private static TestImpactIndex createIndex(Path tempDir) throws IOException {
+        Path sessions = tempDir.resolve("sessions");
+        Files.createDirectories(sessions);
+        try (OutputStream out = Files.newOutputStream(sessions.resolve("sessions-1.exec"))) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writeSession(writer, "com.example.FooTest", 0, 4000, "com/example/Foo", "com/example/Foo$Inner");
+            writeSession(writer, "com.example.BarTest", 0, 1000, "com/example/Bar", "com/example/Shared",
+                    "com/example/BarFixtures");
+        }
+        try (OutputStream out = Files.newOutputStream(sessions.resolve("sessions-2.exec"))) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writeSession(writer, "com.example.SharedTest", 0, 5000, "com/example/Shared");
+        }
+        Files.writeString(sessions.resolve("ignored.txt"), "not execution data");
+        return TestImpactIndex.read(sessions);
+    }
+
+    @Test
+    void testReverseIndex(@TempDir Path tempDir) throws IOException {
+        TestImpactIndex index = createIndex(tempDir);
+
+        assertEquals(Set.of("com.example.FooTest", "com.example.BarTest", "com.example.SharedTest"), index.getTests());
+        assertEquals(Set.of("com.example.FooTest"), index.getTestsCovering("com.example.Foo"));
+        assertEquals(Set.of("com.example.FooTest"), index.getTestsCovering("com/example/Foo$Inner"));
+        assertEquals(Set.of("com.example.BarTest", "com.example.SharedTest"), index.getTestsCovering("com.example.Shared"));
+        assertTrue(index.getTestsCovering("com.example.NeverRun").isEmpty());
+    }
+
+    @Test
+    void testSelectForChangedSources(@TempDir Path tempDir) throws IOException {
+        TestImpactIndex index = createIndex(tempDir);
+
+        TestImpactIndex.Selection selection = index.select(List.of(
+                "src/main/java/com/example/Shared.java", "README.md"));
+
+        assertEquals(List.of("com.example.BarTest", "com.example.SharedTest"), selection.getTests());
+        assertFalse(selection.isFullRun());
+        assertTrue(selection.getUncoveredClasses().isEmpty());
+        assertEquals(3, selection.getTotalTests());
+        assertEquals(6000, selection.getSelectedMillis());
+        assertEquals(10000, selection.getTotalMillis());
+        assertEquals(4000, selection.getSavedMillis());
+    }
+
+    @Test
+    void testSelectChangedTestAndUncoveredClass(@TempDir Path tempDir) throws IOException {
+        TestImpactIndex index = createIndex(tempDir);
+
+        TestImpactIndex.Selection selection = index.select(List.of(
+                "src/test/java/com/example/FooTest.java", "com.example.NeverRun"));
+
+        assertEquals(List.of("com.example.FooTest"), selection.getTests());
+        assertFalse(selection.isFullRun());
+        assertEquals(List.of("com.example.NeverRun"), selection.getUncoveredClasses());
+    }
+
+    @Test
+    void testChangedTestHelperSelectsTestsExecutingIt(@TempDir Path tempDir) throws IOException {
+        TestImpactIndex index = createIndex(tempDir);
+
+        TestImpactIndex.Selection selection = index.select(List.of("src/test/java/com/example/BarFixtures.java"));
+
+        assertEquals(List.of("com.example.BarTest"), selection.getTests());
+        assertFalse(selection.isFullRun());
+        assertEquals(9000, selection.getSavedMillis());
+    }
+
+    @Test
+    void testUnrecordedTestSourceSelectsEverything(@TempDir Path tempDir) throws IOException {
+        TestImpactIndex index = createIndex(tempDir);
+
+        TestImpactIndex.Selection selection = index.select(List.of("src/test/java/com/example/NewTest.java"));
+
+        assertTrue(selection.isFullRun());
+        assertEquals(List.of("com.example.BarTest", "com.example.FooTest", "com.example.NewTest",
+                "com.example.SharedTest"), selection.getTests());
+        assertTrue(selection.getUncoveredClasses().isEmpty());
+        assertEquals(0, selection.getSavedMillis());
+    }
+
+    @Test
+    void testNonSourceChangeSelectsEverything(@TempDir Path tempDir) throws IOException {
+        TestImpactIndex index = createIndex(tempDir);
+
+        TestImpactIndex.Selection selection = index.select(List.of("build.gradle"));
+
+        assertTrue(selection.isFullRun());
+        assertEquals(3, selection.getTests().size());
+        assertEquals(0, selection.getSavedMillis());
+    }
+
+    @Test
+    void testToClassName() {
+        assertEquals("com.example.Foo", TestImpactIndex.toClassName("src/main/java/com/example/Foo.java"));
+        assertEquals("com.example.FooTest",
+                TestImpactIndex.toClassName("module\\src\\test\\java\\com\\example\\FooTest.java"));
+        assertEquals("com.example.Foo", TestImpactIndex.toClassName("com.example.Foo$Inner"));
+        assertNull(TestImpactIndex.toClassName("build.gradle"));
+        assertNull(TestImpactIndex.toClassName("src/main/resources/application.properties"));
+        assertNull(TestImpactIndex.toClassName("scripts/Generate.java"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.calculator;
+
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records one JaCoCo session per top-level test class for {@link TestImpactIndex}.
+ *
+ * Inactive unless the {@value #OUTPUT_PROPERTY} system property names the
+ * directory to write to, as the {@code recordTestImpact} Gradle task does.
+ * The JaCoCo agent must run with {@code jmx=true}. Each test JVM appends to
+ * its own file, so parallel forks do not interleave their output.
+ */
+public class TestImpactListener implements TestExecutionListener {
+
+    static final String OUTPUT_PROPERTY = "coverage.impact.output";
+    private static final String JACOCO_RUNTIME = "org.jacoco:type=Runtime";
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private Path output;
+    private ObjectName runtime;
+    private String currentTestClass;
+
+    public TestImpactListener() {
+        String directory = System.getProperty(OUTPUT_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return;
+        }
+        try {
+            runtime = new ObjectName(JACOCO_RUNTIME);
+            if (!server.isRegistered(runtime)) {
+                System.err.println("Warning: JaCoCo agent with jmx=true not found; test impact is not recorded");
+                return;
+            }
+            output = Paths.get(directory).resolve("sessions-" + ProcessHandle.current().pid() + ".exec");
+            Files.createDirectories(output.getParent());
+        } catch (JMException | IOException e) {
+            System.err.println("Warning: Cannot record test impact: " + e.getMessage());
+            output = null;
+        }
+    }
+
+    @Override
+    public void executionStarted(TestIdentifier testIdentifier) {
+        String testClass = testClassOf(testIdentifier);
+        if (output == null || testClass == null || currentTestClass != null) {
+            return;
+        }
+        try {
+            // Coverage of everything that ran before this class is dropped
+            server.invoke(runtime, "reset", new Object[0], new String[0]);
+            server.setAttribute(runtime, new Attribute("SessionId", testClass));
+            currentTestClass = testClass;
+        } catch (JMException e) {
+            disable(e);
+        }
+    }
+
+    @Override
+    public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+        String testClass = testClassOf(testIdentifier);
+        if (output == null || testClass == null || !testClass.equals(currentTestClass)) {
+            return;
+        }
+        currentTestClass = null;
+        try {
+            byte[] sessions = (byte[]) server.invoke(runtime, "getExecutionData",
+                    new Object[]{Boolean.TRUE}, new String[]{boolean.class.getName()});
+            Files.write(output, sessions, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (JMException | IOException e) {
+            disable(e);
+        }
+    }
+
+    private static String testClassOf(TestIdentifier testIdentifier) {
+        return testIdentifier.getSource()
+                .filter(ClassSource.class::isInstance)
+                .map(source -> ((ClassSource) source).getClassName())
+                .orElse(null);
+    }
+
+    private void disable(Exception e) {
+        System.err.println("Warning: Stopped recording test impact: " + e.getMessage());
+        output = null;
+    }
+}
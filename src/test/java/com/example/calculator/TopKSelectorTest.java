@@ -0,0 +1,69 @@
+package com.example.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for TopKSelector and OffenderRanking
+ */
+class TopKSelectorTest {
+
+    @Test
+    void testKeepsSmallestElements() {
+        TopKSelector<Integer> selector = new TopKSelector<>(3, Comparator.naturalOrder());
+        for (int value : new int[]{9, 4, 7, 1, 8, 2, 6}) {
+            selector.offer(value);
+        }
+
+        assertEquals(List.of(1, 2, 4), selector.result());
+        assertEquals(7, selector.getOffered());
+        assertEquals(4, selector.getDropped());
+    }
+
+    @Test
+    void testFewerElementsThanLimit() {
+        TopKSelector<Integer> selector = new TopKSelector<>(5, Comparator.reverseOrder());
+        selector.offer(1);
+        selector.offer(3);
+
+        assertEquals(List.of(3, 1), selector.result());
+        assertEquals(0, selector.getDropped());
+    }
+
+    @Test
+    void testInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKSelector<Integer>(0, Comparator.naturalOrder()));
+    }
+
+    @Test
+    void testRankings() {
+        CodeCoverageAgent.CoverageData manyInstructions = new CodeCoverageAgent.CoverageData("A", 500, 500, 1, 9, 1, 9);
+        CodeCoverageAgent.CoverageData manyLines = new CodeCoverageAgent.CoverageData("B", 50, 50, 30, 10, 1, 9);
+        CodeCoverageAgent.CoverageData manyMethods = new CodeCoverageAgent.CoverageData("C", 20, 30, 2, 8, 8, 2);
+        CodeCoverageAgent.CoverageData lowestRatio = new CodeCoverageAgent.CoverageData("D", 9, 1, 2, 8, 1, 1);
+        List<CodeCoverageAgent.CoverageData> all = List.of(manyInstructions, manyLines, manyMethods, lowestRatio);
+
+        assertSame(manyInstructions, first(all, OffenderRanking.MISSED_INSTRUCTIONS));
+        assertSame(manyLines, first(all, OffenderRanking.MISSED_LINES));
+        assertSame(manyMethods, first(all, OffenderRanking.MISSED_METHODS));
+        assertSame(lowestRatio, first(all, OffenderRanking.COVERAGE_RATIO));
+    }
+
+    @Test
+    void testRankingFromName() {
+        assertEquals(OffenderRanking.MISSED_LINES, OffenderRanking.fromName("missed-lines"));
+        assertEquals(OffenderRanking.COVERAGE_RATIO, OffenderRanking.fromName("COVERAGE_RATIO"));
+        assertThrows(IllegalArgumentException.class, () -> OffenderRanking.fromName("branches"));
+    }
+
+    private static CodeCoverageAgent.CoverageData first(List<CodeCoverageAgent.CoverageData> data,
+                                                        OffenderRanking ranking) {
+        TopKSelector<CodeCoverageAgent.CoverageData> selector = new TopKSelector<>(1, ranking.comparator());
+        data.forEach(selector::offer);
+        return selector.result().get(0);
+    }
+}